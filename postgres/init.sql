@@ -7,6 +7,12 @@ GRANT USAGE ON SCHEMA public TO test;
 GRANT ALL PRIVILEGES ON ALL TABLES IN SCHEMA public TO test;
 GRANT ALL PRIVILEGES ON ALL SEQUENCES IN SCHEMA public TO test;
 
+-- Product search (SEARCH_BACKEND=postgres), product-search.sql adds the tsvector column and GIN indexes
+-- once the application has created the tables
+\connect ecommerce;
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
 -- CREATE DATABASE ecommerce;
 -- CREATE USER postgres WITH PASSWORD 'postgres';
 --
@@ -0,0 +1,46 @@
+-- Prices and totals move from double precision to bigint minor units (cents), 100.50 becomes 10050.
+-- Run once against an existing database before starting the new version:
+--   psql -U admin -d ecommerce -f migrate-money-minor-units.sql
+-- A new database needs nothing, the application creates the bigint columns itself.
+-- Stops without changes unless products.price is still double precision, so running it twice is safe.
+
+\connect ecommerce;
+
+BEGIN;
+
+DO $$
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'products' AND column_name = 'price') IS DISTINCT FROM 'double precision' THEN
+        RAISE NOTICE 'Money columns are already minor units, nothing to do';
+        RETURN;
+    END IF;
+
+    ALTER TABLE products
+        ALTER COLUMN price TYPE bigint USING round(price * 100)::bigint,
+        ALTER COLUMN special_price TYPE bigint USING round(special_price * 100)::bigint;
+
+    ALTER TABLE cart_items
+        ALTER COLUMN product_price TYPE bigint USING round(product_price * 100)::bigint;
+
+    ALTER TABLE order_items
+        ALTER COLUMN ordered_product_price TYPE bigint USING round(ordered_product_price * 100)::bigint;
+
+    ALTER TABLE orders
+        ALTER COLUMN total_amount TYPE bigint USING round(coalesce(total_amount, 0) * 100)::bigint,
+        ALTER COLUMN total_amount SET DEFAULT 0,
+        ALTER COLUMN total_amount SET NOT NULL;
+
+    -- Cart totals were kept with += and -= on doubles and may have drifted, they are summed from the lines again
+    ALTER TABLE carts
+        ALTER COLUMN total_price TYPE bigint USING 0,
+        ALTER COLUMN total_price SET DEFAULT 0,
+        ALTER COLUMN total_price SET NOT NULL;
+    UPDATE carts c
+    SET total_price = coalesce((SELECT sum(ci.product_price * ci.quantity)
+                                FROM cart_items ci
+                                WHERE ci.cart_id = c.cart_id), 0);
+END
+$$;
+
+COMMIT;
@@ -0,0 +1,188 @@
+package cz.ivosahlik.ecommerce.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import cz.ivosahlik.ecommerce.event.CategoryChangedEvent;
+import cz.ivosahlik.ecommerce.event.ProductChangedEvent;
+import cz.ivosahlik.ecommerce.payload.CategoryDTO;
+import cz.ivosahlik.ecommerce.payload.CategoryResponse;
+import cz.ivosahlik.ecommerce.payload.ProductDTO;
+import cz.ivosahlik.ecommerce.payload.ProductResponse;
+import cz.ivosahlik.ecommerce.search.ProductDocument;
+import cz.ivosahlik.ecommerce.search.TextAnalyzer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+// Read-through cache for the anonymous catalog listings. Every entry remembers which products it contains,
+// so a product write only evicts the listings it can actually show up in. Invalidation runs after the write
+// commits, a load that starts later already reads the new rows.
+@Component
+public class CatalogCache {
+
+    public record ProductsKey(String keyword, String category, Long categoryId, int pageNumber, int pageSize,
+                              String sortBy, String sortOrder, String after) {
+
+        public static ProductsKey of(String keyword, String category, Long categoryId, Integer pageNumber,
+                                     Integer pageSize, String sortBy, String sortOrder, String after) {
+            String normalizedKeyword = keyword == null || keyword.isBlank() ? null : TextAnalyzer.normalize(keyword).strip();
+            return new ProductsKey(normalizedKeyword, emptyToNull(category), categoryId, pageNumber, pageSize,
+                    sortBy, sortOrder.toLowerCase(Locale.ROOT), emptyToNull(after));
+        }
+    }
+
+    public record CategoriesKey(int pageNumber, int pageSize, String sortBy, String sortOrder) {
+
+        public static CategoriesKey of(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+            return new CategoriesKey(pageNumber, pageSize, sortBy, sortOrder.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private record Entry(Object response, Set<Long> productIds) {
+    }
+
+    private final Cache<Object, Entry> cache;
+    private final Counter invalidations;
+    // Bumped when a write has committed, a load that started before that may have read the old rows,
+    // it is returned but not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public CatalogCache(MeterRegistry meterRegistry,
+                        @Value("${spring.ecom.app.catalogCacheTtlSeconds:60}") long ttlSeconds,
+                        @Value("${spring.ecom.app.catalogCacheMaxSize:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "catalog");
+        this.invalidations = Counter.builder("catalog.cache.invalidations")
+                .description("Catalog cache entries evicted by product and category writes")
+                .register(meterRegistry);
+    }
+
+    public ProductResponse products(ProductsKey key, Supplier<ProductResponse> loader) {
+        return get(key, loader, CatalogCache::copy, response -> response.getContent() == null ? Set.of()
+                : response.getContent().stream().map(ProductDTO::getProductId).collect(Collectors.toUnmodifiableSet()));
+    }
+
+    public CategoryResponse categories(CategoriesKey key, Supplier<CategoryResponse> loader) {
+        return get(key, loader, CatalogCache::copy, response -> Set.of());
+    }
+
+    // The payloads are mutable, every caller gets its own copy so none can change what later readers see
+    @SuppressWarnings("unchecked")
+    private <T> T get(Object key, Supplier<T> loader, UnaryOperator<T> copy, Function<T, Set<Long>> productIds) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            return copy.apply((T) entry.response());
+        }
+        long loadedAt = generation.get();
+        T response = loader.get();
+        if (generation.get() == loadedAt) {
+            cache.put(key, new Entry(response, productIds.apply(response)));
+            return copy.apply(response);
+        }
+        return response;
+    }
+
+    private static ProductResponse copy(ProductResponse response) {
+        List<ProductDTO> content = response.getContent() == null ? null : response.getContent().stream()
+                .map(product -> new ProductDTO(product.getProductId(), product.getProductName(), product.getImage(),
+                        product.getDescription(), product.getQuantity(), product.getPrice(), product.getDiscount(),
+                        product.getSpecialPrice()))
+                .collect(Collectors.toCollection(ArrayList::new));
+        return new ProductResponse(content, response.getPageNumber(), response.getPageSize(),
+                response.getTotalElements(), response.getTotalPages(), response.isLastPage(), response.getNextCursor());
+    }
+
+    private static CategoryResponse copy(CategoryResponse response) {
+        List<CategoryDTO> content = response.getContent() == null ? null : response.getContent().stream()
+                .map(category -> new CategoryDTO(category.getCategoryId(), category.getCategoryName()))
+                .collect(Collectors.toCollection(ArrayList::new));
+        return new CategoryResponse(content, response.getPageNumber(), response.getPageSize(),
+                response.getTotalElements(), response.getTotalPages(), response.isLastPage());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        generation.incrementAndGet();
+        List<ProductDocument> versions = new ArrayList<>(2);
+        versions.add(event.document());
+        if (event.previous() != null) {
+            versions.add(event.previous());
+        }
+        Long categoryId = event.categoryId();
+        Long productId = event.productId();
+
+        evict((key, entry) -> key instanceof ProductsKey productsKey
+                && (entry.productIds().contains(productId) || matches(productsKey, versions, categoryId)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        generation.incrementAndGet();
+        evict((key, entry) -> key instanceof CategoriesKey
+                || key instanceof ProductsKey productsKey
+                && (Objects.equals(productsKey.categoryId(), event.categoryId())
+                || productsKey.category() != null
+                && (productsKey.category().equals(event.categoryName())
+                || productsKey.category().equals(event.previousName()))));
+    }
+
+    private static boolean matches(ProductsKey key, List<ProductDocument> versions, Long categoryId) {
+        if (key.categoryId() != null) {
+            return key.categoryId().equals(categoryId);
+        }
+        for (ProductDocument version : versions) {
+            if (key.category() != null && !key.category().equals(version.categoryName())) {
+                continue;
+            }
+            if (key.keyword() == null || containsAllTokens(version, key.keyword())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Every token of a matching keyword occurs somewhere in the product text, for the index and LIKE alike
+    private static boolean containsAllTokens(ProductDocument document, String keyword) {
+        String text = TextAnalyzer.normalize(Objects.toString(document.productName(), "") + " "
+                + Objects.toString(document.description(), ""));
+        List<String> tokens = TextAnalyzer.tokenize(keyword);
+        return tokens.isEmpty() || tokens.stream().allMatch(text::contains);
+    }
+
+    // Scans the map view directly so invalidation does not count as cache hits or misses
+    private void evict(BiPredicate<Object, Entry> predicate) {
+        List<Object> keys = cache.asMap().entrySet().stream()
+                .filter(mapEntry -> predicate.test(mapEntry.getKey(), mapEntry.getValue()))
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!keys.isEmpty()) {
+            cache.invalidateAll(keys);
+            invalidations.increment(keys.size());
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,89 @@
+package cz.ivosahlik.ecommerce.cache;
+
+import cz.ivosahlik.ecommerce.exceptions.APIException;
+import cz.ivosahlik.ecommerce.model.AppRole;
+import cz.ivosahlik.ecommerce.model.Role;
+import cz.ivosahlik.ecommerce.repositories.RoleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// The roles table mirrors AppRole and only ever changes when roles are seeded, so the rows are read once and
+// kept as an immutable snapshot. The Role instances are detached, they are only used as association targets
+// and never modified. A role missing from the snapshot (seeded by another node) triggers one reload.
+@Slf4j
+@Component
+public class RoleRegistry {
+
+    private static final Map<AppRole, GrantedAuthority> AUTHORITIES = authorities();
+
+    private final RoleRepository roleRepository;
+    private volatile Map<AppRole, Role> roles = Collections.emptyMap();
+
+    public RoleRegistry(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    // Shared authority instances, roles never need a new object per principal
+    public static GrantedAuthority authority(AppRole role) {
+        return AUTHORITIES.get(role);
+    }
+
+    public static GrantedAuthority authority(String role) {
+        return authority(AppRole.valueOf(role));
+    }
+
+    public Role role(AppRole appRole) {
+        Role role = roles.get(appRole);
+        if (role == null) {
+            refresh();
+            role = roles.get(appRole);
+        }
+        if (role == null) {
+            throw new APIException("Error: Role is not found.");
+        }
+        return role;
+    }
+
+    // Creates the roles that are missing, one read and nothing else when they all exist
+    @Transactional
+    public synchronized void seed() {
+        List<Role> existing = new ArrayList<>(roleRepository.findAll());
+        List<Role> missing = Arrays.stream(AppRole.values())
+                .filter(appRole -> existing.stream().noneMatch(role -> role.getRoleName() == appRole))
+                .map(Role::new)
+                .toList();
+        if (!missing.isEmpty()) {
+            existing.addAll(roleRepository.saveAll(missing));
+            log.info("Seeded roles {}", missing.stream().map(Role::getRoleName).toList());
+        }
+        roles = snapshot(existing);
+    }
+
+    public synchronized void refresh() {
+        roles = snapshot(roleRepository.findAll());
+    }
+
+    private static Map<AppRole, Role> snapshot(List<Role> rows) {
+        Map<AppRole, Role> byName = new EnumMap<>(AppRole.class);
+        rows.forEach(role -> byName.put(role.getRoleName(), role));
+        return Collections.unmodifiableMap(byName);
+    }
+
+    private static Map<AppRole, GrantedAuthority> authorities() {
+        Map<AppRole, GrantedAuthority> authorities = new EnumMap<>(AppRole.class);
+        for (AppRole role : AppRole.values()) {
+            authorities.put(role, new SimpleGrantedAuthority(role.name()));
+        }
+        return Collections.unmodifiableMap(authorities);
+    }
+}
@@ -0,0 +1,73 @@
+package cz.ivosahlik.ecommerce.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import cz.ivosahlik.ecommerce.event.UserChangedEvent;
+import cz.ivosahlik.ecommerce.model.AppRole;
+import cz.ivosahlik.ecommerce.payload.UserResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// The first pages of the admin seller directory, including their total count. Deeper pages and cursor
+// pages always go to the database. Cleared whenever a seller signs up or someone's roles change.
+@Component
+public class SellerDirectoryCache {
+
+    public record PageKey(int pageNumber, int pageSize) {
+    }
+
+    private final Cache<PageKey, UserResponse> cache;
+    private final int cachedPages;
+    private final Counter invalidations;
+    // Bumped on every change, a load that overlapped a change is returned but not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public SellerDirectoryCache(MeterRegistry meterRegistry,
+                                @Value("${spring.ecom.app.sellerCachePages:3}") int cachedPages,
+                                @Value("${spring.ecom.app.sellerCacheTtlSeconds:300}") long ttlSeconds) {
+        this.cachedPages = cachedPages;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(Math.max(1, cachedPages) * 4L)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "sellers");
+        this.invalidations = Counter.builder("sellers.cache.invalidations")
+                .description("Seller directory cache clears caused by seller sign ups and role changes")
+                .register(meterRegistry);
+    }
+
+    public UserResponse page(int pageNumber, int pageSize, Supplier<UserResponse> loader) {
+        if (pageNumber >= cachedPages) {
+            return loader.get();
+        }
+        PageKey key = new PageKey(pageNumber, pageSize);
+        UserResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedAt = generation.get();
+        UserResponse response = loader.get();
+        if (generation.get() == loadedAt) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.mayAffectRole(AppRole.ROLE_SELLER)) {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+            invalidations.increment();
+        }
+    }
+}
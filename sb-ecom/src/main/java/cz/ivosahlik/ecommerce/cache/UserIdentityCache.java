@@ -0,0 +1,76 @@
+package cz.ivosahlik.ecommerce.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import cz.ivosahlik.ecommerce.event.UserChangedEvent;
+import cz.ivosahlik.ecommerce.model.User;
+import cz.ivosahlik.ecommerce.repositories.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Who the signed in user is (id, email, roles), so AuthUtil and the JWT filter do not load the users row
+// several times per request. The password hash is deliberately not cached, sign in always reads it fresh.
+@Component
+public class UserIdentityCache {
+
+    public record UserIdentity(Long userId, String userName, String email, Set<String> roles, int tokenVersion) {
+
+        public static UserIdentity of(User user) {
+            Set<String> roles = user.getRoles().stream()
+                    .map(role -> role.getRoleName().name())
+                    .collect(Collectors.toUnmodifiableSet());
+            return new UserIdentity(user.getUserId(), user.getUserName(), user.getEmail(), roles, user.getTokenVersion());
+        }
+    }
+
+    private final LoadingCache<String, UserIdentity> cache;
+    private final Counter invalidations;
+
+    public UserIdentityCache(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${spring.ecom.app.userCacheTtlSeconds:300}") long ttlSeconds,
+                             @Value("${spring.ecom.app.userCacheMaxSize:10000}") long maxSize) {
+        // Unknown usernames load as null and are not cached
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build(userName -> userRepository.findByUserName(userName).map(UserIdentity::of).orElse(null));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+        this.invalidations = Counter.builder("users.cache.invalidations")
+                .description("User identities evicted by registrations and role changes")
+                .register(meterRegistry);
+    }
+
+    public UserIdentity get(String userName) {
+        UserIdentity identity = cache.get(userName);
+        if (identity == null) {
+            throw new UsernameNotFoundException("User Not Found with username: " + userName);
+        }
+        return identity;
+    }
+
+    // After commit, so a concurrent request cannot put the old row back into the cache
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        List<String> userNames = cache.asMap().values().stream()
+                .filter(identity -> identity.userId().equals(event.userId()))
+                .map(UserIdentity::userName)
+                .collect(Collectors.toList());
+        if (event.userName() != null) {
+            userNames.add(event.userName());
+        }
+        cache.invalidateAll(userNames);
+        invalidations.increment(userNames.size());
+    }
+}
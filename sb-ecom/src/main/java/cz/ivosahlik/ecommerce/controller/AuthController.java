@@ -7,6 +7,7 @@ import cz.ivosahlik.ecommerce.security.request.SignupRequest;
 import cz.ivosahlik.ecommerce.security.response.MessageResponse;
 import cz.ivosahlik.ecommerce.service.AuthService;
 import cz.ivosahlik.ecommerce.security.jwt.JwtUtils;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
@@ -32,8 +33,8 @@ public class AuthController {
     private final JwtUtils jwtUtils;
 
     @PostMapping("/signin")
-    public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
-        AuthenticationResult result = authService.login(loginRequest);
+    public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        AuthenticationResult result = authService.login(loginRequest, request.getRemoteAddr());
         return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE,
                 result.getJwtCookie().toString())
                 .body(result.getResponse());
@@ -59,9 +60,9 @@ public class AuthController {
     }
 
     @PostMapping("/signout")
-    public ResponseEntity<?> signoutUser(){
+    public ResponseEntity<?> signoutUser(HttpServletRequest request){
         // Clear cookie for both "/api" and "/" paths to remove any legacy cookies
-        ResponseCookie apiPathCookie = authService.logoutUser();
+        ResponseCookie apiPathCookie = authService.logoutUser(jwtUtils.getJwtFromCookies(request));
         ResponseCookie rootPathCookie = jwtUtils.getCleanJwtCookieRoot();
         return ResponseEntity.ok()
                 .header(HttpHeaders.SET_COOKIE, apiPathCookie.toString(), rootPathCookie.toString())
@@ -70,13 +71,14 @@ public class AuthController {
 
     @GetMapping("/sellers")
     public ResponseEntity<?> getAllSellers(
-            @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber) {
+            @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
+            @RequestParam(name = "after", required = false) String after) {
 
         Sort sortByAndOrder = Sort.by(AppConstants.SORT_USERS_BY).descending();
         Pageable pageDetails = PageRequest.of(pageNumber ,
                 Integer.parseInt(AppConstants.PAGE_SIZE), sortByAndOrder);
 
-        return ResponseEntity.ok(authService.getAllSellers(pageDetails));
+        return ResponseEntity.ok(authService.getAllSellers(pageDetails, after));
     }
 
 }
@@ -1,9 +1,7 @@
 package cz.ivosahlik.ecommerce.controller;
 
-import cz.ivosahlik.ecommerce.model.Cart;
 import cz.ivosahlik.ecommerce.payload.CartDTO;
 import cz.ivosahlik.ecommerce.payload.CartItemDTO;
-import cz.ivosahlik.ecommerce.repositories.CartRepository;
 import cz.ivosahlik.ecommerce.service.CartService;
 import cz.ivosahlik.ecommerce.util.AuthUtil;
 import lombok.RequiredArgsConstructor;
@@ -24,7 +22,6 @@ import java.util.List;
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class CartController {
-    private final CartRepository cartRepository;
     private final AuthUtil authUtil;
     private final CartService cartService;
 
@@ -49,10 +46,7 @@ public class CartController {
 
     @GetMapping("/carts/users/cart")
     public ResponseEntity<CartDTO> getCartById(){
-        String emailId = authUtil.loggedInEmail();
-        Cart cart = cartRepository.findCartByEmail(emailId);
-        Long cartId = cart.getCartId();
-        CartDTO cartDTO = cartService.getCart(emailId, cartId);
+        CartDTO cartDTO = cartService.getUserCart(authUtil.loggedInEmail());
         return new ResponseEntity<>(cartDTO, HttpStatus.OK);
     }
 
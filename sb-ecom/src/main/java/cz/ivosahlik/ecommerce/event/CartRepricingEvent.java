@@ -0,0 +1,5 @@
+package cz.ivosahlik.ecommerce.event;
+
+// A product's price changed in more carts than are repriced inline, the rest is done after commit in chunks
+public record CartRepricingEvent(Long productId, long staleLines) {
+}
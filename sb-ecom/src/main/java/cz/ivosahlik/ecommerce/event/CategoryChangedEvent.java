@@ -0,0 +1,26 @@
+package cz.ivosahlik.ecommerce.event;
+
+public record CategoryChangedEvent(Long categoryId, String categoryName, String previousName, ChangeType changeType) {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static CategoryChangedEvent created(Long categoryId, String categoryName) {
+        return new CategoryChangedEvent(categoryId, categoryName, null, ChangeType.CREATED);
+    }
+
+    public static CategoryChangedEvent updated(Long categoryId, String categoryName, String previousName) {
+        return new CategoryChangedEvent(categoryId, categoryName, previousName, ChangeType.UPDATED);
+    }
+
+    public static CategoryChangedEvent deleted(Long categoryId, String categoryName) {
+        return new CategoryChangedEvent(categoryId, categoryName, null, ChangeType.DELETED);
+    }
+
+    public boolean isRenamed() {
+        return changeType == ChangeType.UPDATED && previousName != null && !previousName.equals(categoryName);
+    }
+}
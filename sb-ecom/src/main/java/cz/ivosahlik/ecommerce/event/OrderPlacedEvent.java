@@ -0,0 +1,7 @@
+package cz.ivosahlik.ecommerce.event;
+
+import java.util.Map;
+
+// Ordered quantity per product id of a placed order
+public record OrderPlacedEvent(Long orderId, Map<Long, Integer> orderedQuantities) {
+}
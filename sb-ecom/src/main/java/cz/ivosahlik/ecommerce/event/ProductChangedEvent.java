@@ -0,0 +1,39 @@
+package cz.ivosahlik.ecommerce.event;
+
+import cz.ivosahlik.ecommerce.model.Product;
+import cz.ivosahlik.ecommerce.search.ProductDocument;
+
+// document is the searchable state after the write, previous the state before an update, null for creates
+// and deletes. Both are taken when the event is published, listeners run after commit on a detached
+// product whose lazy category may no longer load.
+public record ProductChangedEvent(Long productId, Long categoryId, ProductDocument document,
+                                  ChangeType changeType, ProductDocument previous) {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static ProductChangedEvent created(Product product) {
+        return of(product, ChangeType.CREATED, null);
+    }
+
+    public static ProductChangedEvent updated(Product product, ProductDocument previous) {
+        return of(product, ChangeType.UPDATED, previous);
+    }
+
+    public static ProductChangedEvent deleted(Product product) {
+        return of(product, ChangeType.DELETED, null);
+    }
+
+    private static ProductChangedEvent of(Product product, ChangeType changeType, ProductDocument previous) {
+        Long categoryId = product.getCategory() != null ? product.getCategory().getCategoryId() : null;
+        return new ProductChangedEvent(product.getProductId(), categoryId, ProductDocument.of(product),
+                changeType, previous);
+    }
+
+    public boolean isDeleted() {
+        return changeType == ChangeType.DELETED;
+    }
+}
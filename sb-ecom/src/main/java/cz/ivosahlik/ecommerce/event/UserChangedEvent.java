@@ -0,0 +1,26 @@
+package cz.ivosahlik.ecommerce.event;
+
+import cz.ivosahlik.ecommerce.model.AppRole;
+
+import java.util.Set;
+
+// roles is only known for registrations, a role change may have added or removed any role
+public record UserChangedEvent(Long userId, String userName, Set<AppRole> roles, ChangeType changeType) {
+
+    public enum ChangeType {
+        REGISTERED,
+        ROLES_CHANGED
+    }
+
+    public static UserChangedEvent registered(Long userId, String userName, Set<AppRole> roles) {
+        return new UserChangedEvent(userId, userName, roles, ChangeType.REGISTERED);
+    }
+
+    public static UserChangedEvent rolesChanged(Long userId) {
+        return new UserChangedEvent(userId, null, null, ChangeType.ROLES_CHANGED);
+    }
+
+    public boolean mayAffectRole(AppRole role) {
+        return roles == null || roles.contains(role);
+    }
+}
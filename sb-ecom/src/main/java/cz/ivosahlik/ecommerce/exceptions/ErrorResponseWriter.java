@@ -0,0 +1,122 @@
+package cz.ivosahlik.ecommerce.exceptions;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.FieldError;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Error bodies have a fixed shape, so everything but the message and path is encoded once up front and the
+// body is streamed straight to the response, no maps or mapper per error. Used on hot rejection paths (401,
+// 429) where a burst of bad requests should cost as little as possible.
+@Component
+public class ErrorResponseWriter {
+
+    private static final byte[] QUOTE = {'"'};
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PATH_FIELD = ",\"path\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ERROR_END = "}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] API_RESPONSE_START = "{\"message\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] API_RESPONSE_END = ",\"status\":false}".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    // {"status":401,"error":"Unauthorized","message": for every status, indexed by ordinal
+    private final byte[][] errorStarts;
+
+    public ErrorResponseWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        HttpStatus[] statuses = HttpStatus.values();
+        this.errorStarts = new byte[statuses.length][];
+        for (HttpStatus status : statuses) {
+            errorStarts[status.ordinal()] = ("{\"status\":" + status.value() + ",\"error\":\""
+                    + status.getReasonPhrase() + "\",\"message\":").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    // {"status":...,"error":...,"message":...,"path":...}, the body of AuthEntryPointJwt and RateLimitFilter
+    public void writeError(HttpServletResponse response, HttpStatus status, String message, String path)
+            throws IOException {
+        byte[] start = errorStarts[status.ordinal()];
+        byte[] encodedMessage = encode(message);
+        byte[] encodedPath = encode(path);
+        begin(response, status, start.length + length(encodedMessage) + PATH_FIELD.length
+                + length(encodedPath) + ERROR_END.length);
+
+        ServletOutputStream out = response.getOutputStream();
+        out.write(start);
+        writeString(out, encodedMessage);
+        out.write(PATH_FIELD);
+        writeString(out, encodedPath);
+        out.write(ERROR_END);
+    }
+
+    // Same body as APIResponse: {"message":...,"status":false}
+    public void writeApiResponse(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        byte[] encodedMessage = encode(message);
+        begin(response, status, API_RESPONSE_START.length + length(encodedMessage) + API_RESPONSE_END.length);
+
+        ServletOutputStream out = response.getOutputStream();
+        out.write(API_RESPONSE_START);
+        writeString(out, encodedMessage);
+        out.write(API_RESPONSE_END);
+    }
+
+    // {"field":"message",...}, the first message wins when a field has several errors
+    public void writeFieldErrors(HttpServletResponse response, List<FieldError> errors) throws IOException {
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartObject();
+            for (int i = 0; i < errors.size(); i++) {
+                FieldError error = errors.get(i);
+                if (!seenBefore(errors, i)) {
+                    generator.writeStringField(error.getField(), error.getDefaultMessage());
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static boolean seenBefore(List<FieldError> errors, int index) {
+        String field = errors.get(index).getField();
+        for (int i = 0; i < index; i++) {
+            if (errors.get(i).getField().equals(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void begin(HttpServletResponse response, HttpStatus status, int contentLength) {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(contentLength);
+    }
+
+    // Escaped UTF-8 without the surrounding quotes, null stays null
+    private static byte[] encode(String value) {
+        return value == null ? null : JsonStringEncoder.getInstance().quoteAsUTF8(value);
+    }
+
+    private static int length(byte[] encoded) {
+        return encoded == null ? NULL.length : encoded.length + 2;
+    }
+
+    private static void writeString(ServletOutputStream out, byte[] encoded) throws IOException {
+        if (encoded == null) {
+            out.write(NULL);
+            return;
+        }
+        out.write(QUOTE);
+        out.write(encoded);
+        out.write(QUOTE);
+    }
+}
@@ -1,43 +1,52 @@
 package cz.ivosahlik.ecommerce.exceptions;
 
 
-import cz.ivosahlik.ecommerce.payload.APIResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
-import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
 
+// Bodies are streamed by ErrorResponseWriter, same JSON as before without a map or message converter per error
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class MyGlobalExceptionHandler {
 
+    private final ErrorResponseWriter errorResponseWriter;
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, String>> myMethodArgumentNotValidException(MethodArgumentNotValidException e) {
-        Map<String, String> response = new HashMap<>();
-        e.getBindingResult().getAllErrors().forEach(err -> {
-            String fieldName = ((FieldError) err).getField();
-            String message = err.getDefaultMessage();
-            response.put(fieldName, message);
-        });
-        return new ResponseEntity<>(response,
-                HttpStatus.BAD_REQUEST);
+    public void myMethodArgumentNotValidException(MethodArgumentNotValidException e, HttpServletResponse response)
+            throws IOException {
+        errorResponseWriter.writeFieldErrors(response, e.getBindingResult().getFieldErrors());
     }
 
     @ExceptionHandler(ResourceNotFoundException.class)
-    public ResponseEntity<APIResponse> myResourceNotFoundException(ResourceNotFoundException e) {
-        String message = e.getMessage();
-        APIResponse apiResponse = new APIResponse(message, false);
-        return new ResponseEntity<>(apiResponse, HttpStatus.NOT_FOUND);
+    public void myResourceNotFoundException(ResourceNotFoundException e, HttpServletResponse response)
+            throws IOException {
+        errorResponseWriter.writeApiResponse(response, HttpStatus.NOT_FOUND, e.getMessage());
     }
 
     @ExceptionHandler(APIException.class)
-    public ResponseEntity<APIResponse> myAPIException(APIException e) {
-        String message = e.getMessage();
-        APIResponse apiResponse = new APIResponse(message, false);
-        return new ResponseEntity<>(apiResponse, HttpStatus.BAD_REQUEST);
+    public void myAPIException(APIException e, HttpServletResponse response) throws IOException {
+        errorResponseWriter.writeApiResponse(response, HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    @ExceptionHandler(RetryLaterException.class)
+    public void myRetryLaterException(RetryLaterException e, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        errorResponseWriter.writeApiResponse(response, e.getStatus(), e.getMessage());
+    }
+
+    // A conflict outside ConflictRetry, e.g. a checkout racing a cart edit, the client just sends it again
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public void myConcurrencyFailureException(ConcurrencyFailureException e, HttpServletResponse response)
+            throws IOException {
+        errorResponseWriter.writeApiResponse(response, HttpStatus.CONFLICT,
+                "The data was changed at the same time, please try again");
     }
 }
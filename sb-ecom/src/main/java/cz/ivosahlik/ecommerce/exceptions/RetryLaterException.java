@@ -0,0 +1,28 @@
+package cz.ivosahlik.ecommerce.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.io.Serial;
+import java.time.Duration;
+
+// 409, 429 or 503 with a Retry-After header
+@Getter
+public class RetryLaterException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public RetryLaterException(String message, HttpStatus status, Duration retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public long getRetryAfterSeconds() {
+        // Retry-After has whole seconds, round up so clients never come back too early
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
@@ -0,0 +1,15 @@
+package cz.ivosahlik.ecommerce.mapper;
+
+import cz.ivosahlik.ecommerce.model.Address;
+import cz.ivosahlik.ecommerce.payload.AddressDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MapperSettings.class)
+public interface AddressMapper {
+
+    AddressDTO toDto(Address address);
+
+    @Mapping(target = "user", ignore = true)
+    Address toEntity(AddressDTO addressDTO);
+}
@@ -0,0 +1,13 @@
+package cz.ivosahlik.ecommerce.mapper;
+
+import cz.ivosahlik.ecommerce.model.Cart;
+import cz.ivosahlik.ecommerce.payload.CartDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MapperSettings.class, uses = ProductMapper.class)
+public interface CartMapper {
+
+    @Mapping(target = "products", source = "cartItems")
+    CartDTO toDto(Cart cart);
+}
@@ -0,0 +1,15 @@
+package cz.ivosahlik.ecommerce.mapper;
+
+import cz.ivosahlik.ecommerce.model.Category;
+import cz.ivosahlik.ecommerce.payload.CategoryDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MapperSettings.class)
+public interface CategoryMapper {
+
+    CategoryDTO toDto(Category category);
+
+    @Mapping(target = "products", ignore = true)
+    Category toEntity(CategoryDTO categoryDTO);
+}
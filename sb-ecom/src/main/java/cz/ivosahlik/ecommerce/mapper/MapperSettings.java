@@ -0,0 +1,14 @@
+package cz.ivosahlik.ecommerce.mapper;
+
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.MapperConfig;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+// Generated at compile time, plain getter/setter code without reflection.
+// A new DTO field without a mapping fails the build instead of silently staying null.
+@MapperConfig(componentModel = MappingConstants.ComponentModel.SPRING,
+        injectionStrategy = InjectionStrategy.CONSTRUCTOR,
+        unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface MapperSettings {
+}
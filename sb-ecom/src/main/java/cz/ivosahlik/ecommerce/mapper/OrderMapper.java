@@ -0,0 +1,21 @@
+package cz.ivosahlik.ecommerce.mapper;
+
+import cz.ivosahlik.ecommerce.model.Order;
+import cz.ivosahlik.ecommerce.model.OrderItem;
+import cz.ivosahlik.ecommerce.model.Payment;
+import cz.ivosahlik.ecommerce.payload.OrderDTO;
+import cz.ivosahlik.ecommerce.payload.OrderItemDTO;
+import cz.ivosahlik.ecommerce.payload.PaymentDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MapperSettings.class, uses = ProductMapper.class)
+public interface OrderMapper {
+
+    @Mapping(target = "addressId", source = "address.addressId")
+    OrderDTO toDto(Order order);
+
+    OrderItemDTO toDto(OrderItem orderItem);
+
+    PaymentDTO toDto(Payment payment);
+}
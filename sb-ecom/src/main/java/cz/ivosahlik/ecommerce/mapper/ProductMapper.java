@@ -0,0 +1,24 @@
+package cz.ivosahlik.ecommerce.mapper;
+
+import cz.ivosahlik.ecommerce.model.CartItem;
+import cz.ivosahlik.ecommerce.model.Product;
+import cz.ivosahlik.ecommerce.payload.ProductDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MapperSettings.class)
+public interface ProductMapper {
+
+    ProductDTO toDto(Product product);
+
+    @Mapping(target = "category", ignore = true)
+    @Mapping(target = "user", ignore = true)
+    @Mapping(target = "products", ignore = true)
+    @Mapping(target = "deleted", ignore = true)
+    Product toEntity(ProductDTO productDTO);
+
+    // Cart views show the product with the quantity in the cart instead of the stock
+    @Mapping(target = ".", source = "product")
+    @Mapping(target = "quantity", source = "quantity")
+    ProductDTO toDto(CartItem cartItem);
+}
@@ -0,0 +1,23 @@
+package cz.ivosahlik.ecommerce.mapper;
+
+import cz.ivosahlik.ecommerce.model.User;
+import cz.ivosahlik.ecommerce.payload.UserDTO;
+import cz.ivosahlik.ecommerce.repositories.projection.UserSummary;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MapperSettings.class, uses = CartMapper.class)
+public interface UserMapper {
+
+    @Mapping(target = "username", source = "userName")
+    @Mapping(target = "password", ignore = true)
+    @Mapping(target = "address", ignore = true)
+    UserDTO toDto(User user);
+
+    @Mapping(target = "username", source = "userName")
+    @Mapping(target = "password", ignore = true)
+    @Mapping(target = "roles", ignore = true)
+    @Mapping(target = "address", ignore = true)
+    @Mapping(target = "cart", ignore = true)
+    UserDTO toDto(UserSummary user);
+}
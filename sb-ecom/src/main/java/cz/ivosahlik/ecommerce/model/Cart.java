@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,19 +12,34 @@ import java.util.List;
 @Entity
 @Data
 @Table(name = "carts")
+@NamedEntityGraph(name = Cart.WITH_ITEMS,
+        attributeNodes = @NamedAttributeNode(value = "cartItems", subgraph = "items"),
+        subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product")))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Cart {
+    // Cart view and checkout: items with their products in one select
+    public static final String WITH_ITEMS = "Cart.withItems";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long cartId;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
     @OneToMany(mappedBy = "cart", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, orphanRemoval = true)
     private List<CartItem> cartItems = new ArrayList<>();
 
-    private Double totalPrice = 0.0;
+    // Minor units
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long totalPrice;
+
+    // Every cart mutation bumps it, concurrent edits of one cart fail instead of losing an update
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
 }
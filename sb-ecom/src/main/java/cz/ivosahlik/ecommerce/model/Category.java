@@ -22,6 +22,7 @@ public class Category {
     @Size(min = 5, message = "Category name must contain atleast 5 characters")
     private String categoryName;
 
-    @OneToMany(mappedBy = "category", cascade = CascadeType.ALL)
+    // No cascade, deleting a category tombstones its products in one statement
+    @OneToMany(mappedBy = "category")
     private List<Product> products;
 }
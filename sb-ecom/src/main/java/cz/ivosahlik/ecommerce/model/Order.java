@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Email;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -12,10 +13,20 @@ import java.util.List;
 
 @Entity
 @Table(name = "orders")
+@NamedEntityGraph(name = Order.WITH_DETAILS,
+        attributeNodes = {
+                @NamedAttributeNode(value = "orderItems", subgraph = "items"),
+                @NamedAttributeNode("payment"),
+                @NamedAttributeNode("address")
+        },
+        subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product")))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Order {
+    // Everything OrderDTO shows
+    public static final String WITH_DETAILS = "Order.withDetails";
+
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -30,15 +41,18 @@ public class Order {
 
     private LocalDate orderDate;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "payment_id")
     private Payment payment;
 
-    private Double totalAmount;
+    // Minor units
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long totalAmount;
     private String orderStatus;
 
     // Reference to Address
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "address_id")
     private Address address;
 }
@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -15,7 +16,13 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_name_id", columnList = "product_name, product_id"),
+        @Index(name = "idx_products_price_id", columnList = "price, product_id"),
+        @Index(name = "idx_products_special_price_id", columnList = "special_price, product_id"),
+        @Index(name = "idx_products_category_id", columnList = "category_id, product_id"),
+        @Index(name = "idx_products_seller_id", columnList = "seller_id, product_id")
+})
 @ToString
 public class Product {
 
@@ -32,18 +39,25 @@ public class Product {
     @Size(min = 6, message = "Product description must contain atleast 6 characters")
     private String description;
     private Integer quantity;
-    private double price;
+    // Prices in minor units (see Money), the discount is a percentage
+    private long price;
     private double discount;
-    private double specialPrice;
+    private long specialPrice;
 
-    @ManyToOne
+    // Tombstone, filtered out of every catalog query. Deleted products stay for order history, the others are
+    // deleted by DeletedProductSweeper once no cart holds them.
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seller_id")
     private User user;
 
-    @OneToMany(mappedBy = "product", cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "product", cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     private List<CartItem> products = new ArrayList<>();
 }
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -42,6 +43,11 @@ public class User {
     @Column(name = "password")
     private String password;
 
+    // Part of every JWT, bumping it invalidates the tokens issued before (role changes)
+    @ColumnDefault("0")
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
     public User(String userName, String email, String password) {
         this.userName = userName;
         this.email = email;
@@ -50,11 +56,13 @@ public class User {
 
     @Setter
     @Getter
-    @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE},
-                fetch = FetchType.EAGER)
+    // No cascade, roles are reference data from RoleRegistry and never created or changed through a user
+    @ManyToMany
     @JoinTable(name = "user_role",
                 joinColumns = @JoinColumn(name = "user_id"),
-                inverseJoinColumns = @JoinColumn(name = "role_id"))
+                inverseJoinColumns = @JoinColumn(name = "role_id"),
+                // Users of one role in user id order, for the seller directory
+                indexes = @Index(name = "idx_user_role_role_user", columnList = "role_id, user_id"))
     private Set<Role> roles = new HashSet<>();
 
     @Getter
@@ -1,5 +1,6 @@
 package cz.ivosahlik.ecommerce.payload;
 
+import cz.ivosahlik.ecommerce.util.MinorUnits;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +13,7 @@ import java.util.List;
 @AllArgsConstructor
 public class CartDTO {
     private Long cartId;
-    private Double totalPrice = 0.0;
+    @MinorUnits
+    private long totalPrice;
     private List<ProductDTO> products = new ArrayList<>();
 }
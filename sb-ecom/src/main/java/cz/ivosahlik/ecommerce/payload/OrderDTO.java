@@ -1,5 +1,6 @@
 package cz.ivosahlik.ecommerce.payload;
 
+import cz.ivosahlik.ecommerce.util.MinorUnits;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,7 +17,8 @@ public class OrderDTO {
     private List<OrderItemDTO> orderItems;
     private LocalDate orderDate;
     private PaymentDTO payment;
-    private Double totalAmount;
+    @MinorUnits
+    private long totalAmount;
     private String orderStatus;
     private Long addressId;
 }
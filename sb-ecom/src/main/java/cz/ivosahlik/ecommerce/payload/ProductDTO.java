@@ -1,5 +1,6 @@
 package cz.ivosahlik.ecommerce.payload;
 
+import cz.ivosahlik.ecommerce.util.MinorUnits;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,7 +14,9 @@ public class ProductDTO {
     private String image;
     private String description;
     private Integer quantity;
-    private double price;
+    @MinorUnits
+    private long price;
     private double discount;
-    private double specialPrice;
+    @MinorUnits
+    private long specialPrice;
 }
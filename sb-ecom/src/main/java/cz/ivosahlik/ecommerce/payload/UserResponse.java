@@ -17,5 +17,6 @@ public class UserResponse {
 	private Long totalElements;
 	private Integer totalPages;
 	private boolean lastPage;
+	private String nextCursor;
 
 }
@@ -1,11 +1,21 @@
 package cz.ivosahlik.ecommerce.repositories;
 
 import cz.ivosahlik.ecommerce.model.CartItem;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartItemRepositoryCustom {
+    String REPRICE_LINES = "UPDATE VERSIONED CartItem ci " +
+            "SET ci.productPrice = (SELECT p.specialPrice FROM Product p WHERE p.productId = :productId) " +
+            "WHERE ci.product.productId = :productId " +
+            "AND ci.productPrice <> (SELECT p.specialPrice FROM Product p WHERE p.productId = :productId)";
 
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     @Query("SELECT ci FROM CartItem ci WHERE ci.cart.id = ?1 AND ci.product.id = ?2")
     CartItem findCartItemByProductIdAndCartId(Long cartId, Long productId);
 
@@ -16,4 +26,35 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     @Modifying
     @Query("DELETE FROM CartItem ci WHERE ci.cart.id = ?1")
     void deleteAllByCartId(Long cartId);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cartItemId IN :cartItemIds")
+    int deleteAllByIdIn(@Param("cartItemIds") Collection<Long> cartItemIds);
+
+    // Lines still carrying a price other than the product's current special price
+    @Query("SELECT COUNT(ci) FROM CartItem ci JOIN ci.product p " +
+            "WHERE p.productId = :productId AND ci.productPrice <> p.specialPrice")
+    long countStalePrices(@Param("productId") Long productId);
+
+    @Query("SELECT DISTINCT ci.cart.cartId FROM CartItem ci JOIN ci.product p " +
+            "WHERE p.productId = :productId AND ci.productPrice <> p.specialPrice AND ci.cart.cartId > :after " +
+            "ORDER BY ci.cart.cartId")
+    List<Long> findCartIdsWithStalePrice(@Param("productId") Long productId, @Param("after") Long after, Limit limit);
+
+    @Query("SELECT DISTINCT ci.cart.cartId FROM CartItem ci JOIN ci.product p WHERE p.deleted = true " +
+            "ORDER BY ci.cart.cartId")
+    List<Long> findCartIdsWithDeletedProducts(Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.cartId IN :cartIds " +
+            "AND ci.product.productId IN (SELECT p.productId FROM Product p WHERE p.deleted = true)")
+    int deleteDeletedProducts(@Param("cartIds") List<Long> cartIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query(REPRICE_LINES)
+    int repricePrices(@Param("productId") Long productId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(REPRICE_LINES + " AND ci.cart.cartId IN :cartIds")
+    int repricePrices(@Param("productId") Long productId, @Param("cartIds") List<Long> cartIds);
 }
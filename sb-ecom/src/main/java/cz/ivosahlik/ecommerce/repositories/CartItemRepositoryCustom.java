@@ -0,0 +1,14 @@
+package cz.ivosahlik.ecommerce.repositories;
+
+import cz.ivosahlik.ecommerce.model.CartItem;
+
+import java.util.List;
+
+// Cart sync writes, one JDBC batch per kind of change instead of a statement per line. They bypass the
+// persistence context, so callers must not rely on loaded cart items afterwards.
+public interface CartItemRepositoryCustom {
+
+    void insertAll(Long cartId, List<CartItem> cartItems);
+
+    void updateAll(List<CartItem> cartItems);
+}
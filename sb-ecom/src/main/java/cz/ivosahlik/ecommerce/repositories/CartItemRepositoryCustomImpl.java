@@ -0,0 +1,54 @@
+package cz.ivosahlik.ecommerce.repositories;
+
+import cz.ivosahlik.ecommerce.model.CartItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class CartItemRepositoryCustomImpl implements CartItemRepositoryCustom {
+
+    private static final String INSERT = "INSERT INTO cart_items (cart_id, product_id, quantity, discount, product_price, version) " +
+            "VALUES (?, ?, ?, ?, ?, 0)";
+    // Same version check as a Hibernate update of a versioned entity
+    private static final String UPDATE = "UPDATE cart_items SET quantity = ?, discount = ?, product_price = ?, version = version + 1 " +
+            "WHERE cart_item_id = ? AND version = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(Long cartId, List<CartItem> cartItems) {
+        if (cartItems.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, cartItems, cartItems.size(), (statement, cartItem) -> {
+            statement.setLong(1, cartId);
+            statement.setLong(2, cartItem.getProduct().getProductId());
+            statement.setInt(3, cartItem.getQuantity());
+            statement.setDouble(4, cartItem.getDiscount());
+            statement.setLong(5, cartItem.getProductPrice());
+        });
+    }
+
+    @Override
+    public void updateAll(List<CartItem> cartItems) {
+        if (cartItems.isEmpty()) {
+            return;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE, cartItems, cartItems.size(), (statement, cartItem) -> {
+            statement.setInt(1, cartItem.getQuantity());
+            statement.setDouble(2, cartItem.getDiscount());
+            statement.setLong(3, cartItem.getProductPrice());
+            statement.setLong(4, cartItem.getCartItemId());
+            statement.setLong(5, cartItem.getVersion());
+        });
+        int[] updated = counts[0];
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new ObjectOptimisticLockingFailureException(CartItem.class, cartItems.get(i).getCartItemId());
+            }
+        }
+    }
+}
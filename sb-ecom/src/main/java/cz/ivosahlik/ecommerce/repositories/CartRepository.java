@@ -1,18 +1,55 @@
 package cz.ivosahlik.ecommerce.repositories;
 
 import cz.ivosahlik.ecommerce.model.Cart;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
+    String LINES_TOTAL = "COALESCE((SELECT SUM(ci.productPrice * ci.quantity) FROM CartItem ci WHERE ci.cart = c), 0)";
+
+    @EntityGraph(Cart.WITH_ITEMS)
     @Query("SELECT c FROM Cart c WHERE c.user.email = ?1")
     Cart findCartByEmail(String email);
 
+    @EntityGraph(Cart.WITH_ITEMS)
     @Query("SELECT c FROM Cart c WHERE c.user.email = ?1 AND c.id = ?2")
     Cart findCartByEmailAndCartId(String emailId, Long cartId);
 
-    @Query("SELECT c FROM Cart c JOIN FETCH c.cartItems ci JOIN FETCH ci.product p WHERE p.id = ?1")
-    List<Cart> findCartsByProductId(Long productId);
+    // Creates the user's cart unless a concurrent request just did, a lost race is a no-op instead of an error
+    @Modifying
+    @Query(value = "INSERT INTO carts (user_id, total_price, version) VALUES (:userId, 0, 0) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId);
+
+    // Compare and set on the version, 0 means someone else changed the cart since it was read
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalPrice = :totalPrice, c.version = c.version + 1 " +
+            "WHERE c.cartId = :cartId AND c.version = :version")
+    int updateTotalPrice(@Param("cartId") Long cartId, @Param("version") Long version,
+                         @Param("totalPrice") long totalPrice);
+
+    // Sets each total to the sum of its lines, must run after the lines are repriced in the same transaction.
+    // The sum reads the lines that transaction has written and locked, not a price that may have moved since.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE VERSIONED Cart c SET c.totalPrice = " + LINES_TOTAL + " " +
+            "WHERE c.cartId IN (SELECT ci.cart.cartId FROM CartItem ci WHERE ci.product.productId = :productId) " +
+            "AND c.totalPrice <> " + LINES_TOTAL)
+    int recomputeTotals(@Param("productId") Long productId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE VERSIONED Cart c SET c.totalPrice = " + LINES_TOTAL + " WHERE c.cartId IN :cartIds")
+    int recomputeTotals(@Param("cartIds") List<Long> cartIds);
+
+    // Takes the lines of deleted products out of the totals, must run before the lines are deleted
+    @Modifying
+    @Query("UPDATE VERSIONED Cart c SET c.totalPrice = c.totalPrice - " +
+            "COALESCE((SELECT SUM(ci.productPrice * ci.quantity) FROM CartItem ci JOIN ci.product p " +
+            "WHERE ci.cart = c AND p.deleted = true), 0) " +
+            "WHERE c.cartId IN :cartIds")
+    int subtractDeletedProducts(@Param("cartIds") List<Long> cartIds);
 }
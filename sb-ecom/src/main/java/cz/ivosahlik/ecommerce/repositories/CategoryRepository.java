@@ -1,8 +1,16 @@
 package cz.ivosahlik.ecommerce.repositories;
 
 import cz.ivosahlik.ecommerce.model.Category;
+import cz.ivosahlik.ecommerce.payload.CategoryDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface CategoryRepository extends JpaRepository<Category,Long> {
     Category findByCategoryName(String categoryName);
+
+    @Query(value = "SELECT new cz.ivosahlik.ecommerce.payload.CategoryDTO(c.categoryId, c.categoryName) FROM categories c",
+            countQuery = "SELECT COUNT(c) FROM categories c")
+    Page<CategoryDTO> findCategoryDTOs(Pageable pageable);
 }
@@ -1,12 +1,28 @@
 package cz.ivosahlik.ecommerce.repositories;
 
 
+import cz.ivosahlik.ecommerce.repositories.projection.OrderItemRow;
+import cz.ivosahlik.ecommerce.search.ProductPopularity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import cz.ivosahlik.ecommerce.model.OrderItem;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
+    @Query("SELECT oi.product.productId AS productId, SUM(oi.quantity) AS orderedQuantity " +
+            "FROM OrderItem oi GROUP BY oi.product.productId")
+    List<ProductPopularity> findProductPopularity();
+
+    @Query("SELECT new cz.ivosahlik.ecommerce.repositories.projection.OrderItemRow(oi.order.orderId, oi.orderItemId, " +
+            "oi.quantity, oi.discount, oi.orderedProductPrice, p.productId, p.productName, p.image, p.description, " +
+            "p.quantity, p.price, p.discount, p.specialPrice) " +
+            "FROM OrderItem oi LEFT JOIN oi.product p WHERE oi.order.orderId IN :orderIds ORDER BY oi.orderItemId")
+    List<OrderItemRow> findRowsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
 }
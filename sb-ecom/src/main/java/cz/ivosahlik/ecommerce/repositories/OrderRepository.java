@@ -1,15 +1,40 @@
 package cz.ivosahlik.ecommerce.repositories;
 
 
+import cz.ivosahlik.ecommerce.repositories.projection.OrderRow;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import cz.ivosahlik.ecommerce.model.Order;
 
+import java.util.Optional;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    String ORDER_ROW = "SELECT new cz.ivosahlik.ecommerce.repositories.projection.OrderRow(o.orderId, o.email, " +
+            "o.orderDate, o.totalAmount, o.orderStatus, a.addressId, pay.paymentId, pay.paymentMethod, " +
+            "pay.pgPaymentId, pay.pgStatus, pay.pgResponseMessage, pay.pgName) " +
+            "FROM Order o LEFT JOIN o.address a LEFT JOIN o.payment pay";
+
+    String SOLD_BY_SELLER = "EXISTS (SELECT 1 FROM OrderItem oi WHERE oi.order = o AND oi.product.user.userId = :sellerId)";
+
+    @EntityGraph(Order.WITH_DETAILS)
+    Optional<Order> findWithDetailsByOrderId(Long orderId);
+
+    // Minor units, summed as integers in the database
     @Query("SELECT COALESCE(SUM(o.totalAmount), 0) FROM Order o")
-    Double getTotalRevenue();
+    long getTotalRevenue();
+
+    @Query(value = ORDER_ROW, countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<OrderRow> findOrderRows(Pageable pageable);
+
+    @Query(value = ORDER_ROW + " WHERE " + SOLD_BY_SELLER,
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE " + SOLD_BY_SELLER)
+    Page<OrderRow> findOrderRowsBySeller(@Param("sellerId") Long sellerId, Pageable pageable);
 }
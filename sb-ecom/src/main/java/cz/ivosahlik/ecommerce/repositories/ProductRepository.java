@@ -1,19 +1,91 @@
 package cz.ivosahlik.ecommerce.repositories;
 
-import cz.ivosahlik.ecommerce.model.Category;
 import cz.ivosahlik.ecommerce.model.Product;
 import cz.ivosahlik.ecommerce.model.User;
+import cz.ivosahlik.ecommerce.payload.ProductDTO;
+import cz.ivosahlik.ecommerce.search.ProductDocument;
+import cz.ivosahlik.ecommerce.search.ProductSearchHit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
-    Page<Product> findByCategoryOrderByPriceAsc(Category category, Pageable pageDetails);
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductRepositoryCustom {
+
+    String PRODUCT_DTO = "new cz.ivosahlik.ecommerce.payload.ProductDTO(p.productId, p.productName, p.image, " +
+            "p.description, p.quantity, p.price, p.discount, p.specialPrice)";
+
+    @Query("SELECT p FROM Product p WHERE p.productId = :productId AND p.deleted = false")
+    Optional<Product> findActiveById(@Param("productId") Long productId);
 
-    Page<Product> findByProductNameLikeIgnoreCase(String keyword, Pageable pageDetails);
+    long countByDeletedFalse();
+
+    @Query(value = "SELECT " + PRODUCT_DTO + " FROM Product p " +
+            "WHERE p.category.categoryId = :categoryId AND p.deleted = false ORDER BY p.price ASC",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.categoryId = :categoryId AND p.deleted = false")
+    Page<ProductDTO> findProductDTOsByCategoryId(@Param("categoryId") Long categoryId, Pageable pageDetails);
+
+    @Query("SELECT " + PRODUCT_DTO + " FROM Product p WHERE p.productId IN :productIds AND p.deleted = false")
+    List<ProductDTO> findProductDTOsByIdIn(@Param("productIds") Collection<Long> productIds);
 
     Page<Product> findByUser(User user, Pageable pageDetails);
+
+    @EntityGraph(attributePaths = "category")
+    List<Product> findByCategoryCategoryIdAndDeletedFalse(Long categoryId);
+
+    // Tombstones the whole category in one statement and detaches the products from it, so it can be deleted.
+    // Clears the persistence context, products loaded before would still point at the category.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.deleted = true, p.category = null WHERE p.category.categoryId = :categoryId")
+    int tombstoneByCategoryId(@Param("categoryId") Long categoryId);
+
+    // Tombstones no cart line or order item points at any more, products in order history stay
+    @Modifying
+    @Query("DELETE FROM Product p WHERE p.deleted = true " +
+            "AND NOT EXISTS (SELECT ci FROM CartItem ci WHERE ci.product = p) " +
+            "AND NOT EXISTS (SELECT oi FROM OrderItem oi WHERE oi.product = p)")
+    int deleteUnreferencedTombstones();
+
+    @Query("SELECT new cz.ivosahlik.ecommerce.search.ProductDocument(p.productId, p.productName, p.description, c.categoryName) " +
+            "FROM Product p LEFT JOIN p.category c WHERE p.productId > :after AND p.deleted = false ORDER BY p.productId")
+    List<ProductDocument> findSearchDocumentsAfter(@Param("after") Long after, Pageable pageable);
+
+    String FULL_TEXT_MATCH = "FROM products p LEFT JOIN categories c ON c.category_id = p.category_id " +
+            "WHERE (p.search_vector @@ to_tsquery('simple', :tsQuery) " +
+            "OR immutable_unaccent(lower(p.product_name)) LIKE :pattern " +
+            "OR immutable_unaccent(lower(p.description)) LIKE :pattern) " +
+            "AND (CAST(:category AS text) IS NULL OR c.category_name = CAST(:category AS text)) " +
+            "AND NOT p.deleted";
+
+    @Query(value = "SELECT r.product_id AS productId, r.rank AS rank FROM (" +
+            "SELECT p.product_id, CAST(ts_rank(p.search_vector, to_tsquery('simple', :tsQuery)) " +
+            "+ similarity(immutable_unaccent(lower(p.product_name)), :keyword) AS float8) AS rank " +
+            FULL_TEXT_MATCH + ") r " +
+            "WHERE CAST(:lastRank AS float8) IS NULL OR (r.rank, r.product_id) < (CAST(:lastRank AS float8), :lastProductId) " +
+            "ORDER BY r.rank DESC, r.product_id DESC LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<ProductSearchHit> searchFullText(@Param("tsQuery") String tsQuery,
+                                          @Param("keyword") String keyword,
+                                          @Param("pattern") String pattern,
+                                          @Param("category") String category,
+                                          @Param("lastRank") Double lastRank,
+                                          @Param("lastProductId") Long lastProductId,
+                                          @Param("limit") int limit,
+                                          @Param("offset") long offset);
+
+    @Query(value = "SELECT count(*) " + FULL_TEXT_MATCH, nativeQuery = true)
+    long countFullText(@Param("tsQuery") String tsQuery,
+                       @Param("pattern") String pattern,
+                       @Param("category") String category);
 }
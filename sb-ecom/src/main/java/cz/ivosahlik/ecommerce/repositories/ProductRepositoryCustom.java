@@ -0,0 +1,18 @@
+package cz.ivosahlik.ecommerce.repositories;
+
+import cz.ivosahlik.ecommerce.model.Product;
+import cz.ivosahlik.ecommerce.payload.ProductDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+// Listing queries that select only the ProductDTO columns, so no product associations are loaded
+public interface ProductRepositoryCustom {
+
+    Page<ProductDTO> findProductDTOs(Specification<Product> spec, Pageable pageable);
+
+    List<ProductDTO> findProductDTOs(Specification<Product> spec, Sort sort, int limit);
+}
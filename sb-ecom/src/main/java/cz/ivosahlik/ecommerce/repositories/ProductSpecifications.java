@@ -0,0 +1,68 @@
+package cz.ivosahlik.ecommerce.repositories;
+
+import cz.ivosahlik.ecommerce.model.Product;
+import cz.ivosahlik.ecommerce.model.User;
+import cz.ivosahlik.ecommerce.util.ProductCursor;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    // Public listing filters, blank values are ignored
+    public static Specification<Product> listing(String keyword, String category) {
+        Specification<Product> spec = Specification.allOf();
+        if (keyword != null && !keyword.isEmpty()) {
+            spec = spec.and(nameContains(keyword));
+        }
+        if (category != null && !category.isEmpty()) {
+            spec = spec.and(inCategory(category));
+        }
+        return spec;
+    }
+
+    public static Specification<Product> active() {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.isFalse(root.get("deleted"));
+    }
+
+    public static Specification<Product> nameContains(String keyword) {
+        String pattern = ("%" + keyword + "%").toLowerCase();
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.like(criteriaBuilder.lower(root.get("productName")), pattern);
+    }
+
+    public static Specification<Product> inCategory(String category) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.like(root.get("category").get("categoryName"), category);
+    }
+
+    public static Specification<Product> soldBy(User seller) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.equal(root.get("user"), seller);
+    }
+
+    // Rows strictly after the cursor in (sortBy, productId) order
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Product> seekAfter(ProductCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            Path<Long> id = root.get(ProductCursor.ID_FIELD);
+            Predicate idAfter = cursor.ascending()
+                    ? criteriaBuilder.greaterThan(id, cursor.lastProductId())
+                    : criteriaBuilder.lessThan(id, cursor.lastProductId());
+            if (cursor.sortBy().equals(ProductCursor.ID_FIELD)) {
+                return idAfter;
+            }
+
+            Path<Comparable> field = root.get(cursor.sortBy());
+            Comparable value = cursor.lastValue();
+            Predicate valueAfter = cursor.ascending()
+                    ? criteriaBuilder.greaterThan(field, value)
+                    : criteriaBuilder.lessThan(field, value);
+            return criteriaBuilder.or(valueAfter,
+                    criteriaBuilder.and(criteriaBuilder.equal(field, value), idAfter));
+        };
+    }
+}
@@ -2,25 +2,54 @@ package cz.ivosahlik.ecommerce.repositories;
 
 import cz.ivosahlik.ecommerce.model.AppRole;
 import cz.ivosahlik.ecommerce.model.User;
+import cz.ivosahlik.ecommerce.repositories.projection.UserSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    @EntityGraph(attributePaths = "roles")
     Optional<User> findByUserName(String username);
 
     Boolean existsByUserName(String username);
 
     Boolean existsByEmail(String email);
 
-    @Query("SELECT u FROM User u JOIN u.roles r WHERE r.roleName = :role")
-    Page<User> findByRoleName(@Param("role") AppRole role, Pageable pageable);
+    // Users that clash with a sign up, true where the user name matches and false for an email only match
+    @Query("SELECT CASE WHEN u.userName = :userName THEN true ELSE false END FROM User u " +
+            "WHERE u.userName = :userName OR u.email = :email")
+    List<Boolean> findSignupConflicts(@Param("userName") String userName, @Param("email") String email);
+
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.userId = :userId")
+    Optional<Integer> findTokenVersionById(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1 WHERE u.userId = :userId")
+    int incrementTokenVersion(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.userName = :userName")
+    int updatePassword(@Param("userName") String userName, @Param("password") String password);
+
+    @Query(value = "SELECT new cz.ivosahlik.ecommerce.repositories.projection.UserSummary(u.userId, u.userName, u.email) " +
+            "FROM User u JOIN u.roles r WHERE r.roleName = :role",
+            countQuery = "SELECT COUNT(u) FROM User u JOIN u.roles r WHERE r.roleName = :role")
+    Page<UserSummary> findByRoleName(@Param("role") AppRole role, Pageable pageable);
+
+    // Keyset page in descending user id order, served by the (role_id, user_id) index without OFFSET or COUNT
+    @Query("SELECT new cz.ivosahlik.ecommerce.repositories.projection.UserSummary(u.userId, u.userName, u.email) " +
+            "FROM User u JOIN u.roles r WHERE r.roleName = :role AND u.userId < :before ORDER BY u.userId DESC")
+    List<UserSummary> findByRoleNameBefore(@Param("role") AppRole role, @Param("before") Long before, Limit limit);
 
 }
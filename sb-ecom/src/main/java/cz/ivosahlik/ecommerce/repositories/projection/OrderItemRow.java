@@ -0,0 +1,25 @@
+package cz.ivosahlik.ecommerce.repositories.projection;
+
+import cz.ivosahlik.ecommerce.payload.OrderItemDTO;
+import cz.ivosahlik.ecommerce.payload.ProductDTO;
+
+public record OrderItemRow(Long orderId,
+                           Long orderItemId,
+                           Integer quantity,
+                           double discount,
+                           long orderedProductPrice,
+                           Long productId,
+                           String productName,
+                           String image,
+                           String description,
+                           Integer productQuantity,
+                           Long price,
+                           Double productDiscount,
+                           Long specialPrice) {
+
+    public OrderItemDTO toDto() {
+        ProductDTO product = productId == null ? null
+                : new ProductDTO(productId, productName, image, description, productQuantity, price, productDiscount, specialPrice);
+        return new OrderItemDTO(orderItemId, product, quantity, discount, orderedProductPrice);
+    }
+}
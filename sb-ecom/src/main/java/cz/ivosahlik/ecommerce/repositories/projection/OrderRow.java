@@ -0,0 +1,28 @@
+package cz.ivosahlik.ecommerce.repositories.projection;
+
+import cz.ivosahlik.ecommerce.payload.OrderDTO;
+import cz.ivosahlik.ecommerce.payload.PaymentDTO;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+// One order row with its payment and address id, the items are loaded separately for the whole page
+public record OrderRow(Long orderId,
+                       String email,
+                       LocalDate orderDate,
+                       long totalAmount,
+                       String orderStatus,
+                       Long addressId,
+                       Long paymentId,
+                       String paymentMethod,
+                       String pgPaymentId,
+                       String pgStatus,
+                       String pgResponseMessage,
+                       String pgName) {
+
+    public OrderDTO toDto() {
+        PaymentDTO payment = paymentId == null ? null
+                : new PaymentDTO(paymentId, paymentMethod, pgPaymentId, pgStatus, pgResponseMessage, pgName);
+        return new OrderDTO(orderId, email, new ArrayList<>(), orderDate, payment, totalAmount, orderStatus, addressId);
+    }
+}
@@ -0,0 +1,4 @@
+package cz.ivosahlik.ecommerce.repositories.projection;
+
+public record UserSummary(Long userId, String userName, String email) {
+}
@@ -0,0 +1,146 @@
+package cz.ivosahlik.ecommerce.search;
+
+import cz.ivosahlik.ecommerce.event.ProductChangedEvent;
+import cz.ivosahlik.ecommerce.repositories.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "spring.ecom.app.search.backend", havingValue = "memory", matchIfMissing = true)
+public class InMemoryProductSearchEngine implements ProductSearchEngine {
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private InvertedIndex index = new InvertedIndex();
+    // Changes made while a rebuild is running, replayed onto the new index before it is swapped in
+    private List<Consumer<InvertedIndex>> pendingChanges;
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread.ofVirtual().name("product-search-rebuild").start(this::rebuild);
+    }
+
+    // After commit, a rolled back write never reaches the index
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isDeleted()) {
+            remove(event.productId());
+        } else {
+            index(event.document());
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Pages by offset or by the cursor of the previous page, which holds the score and id of its last hit
+    @Override
+    public SearchResult search(String keyword, String category, int pageNumber, int pageSize, String after) {
+        SearchCursor cursor = after != null && !after.isEmpty() ? SearchCursor.decode(after) : null;
+        InvertedIndex.Ranked ranked;
+        lock.readLock().lock();
+        try {
+            ranked = index.search(keyword, category);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int from = cursor == null
+                ? (int) Math.min((long) pageNumber * pageSize, ranked.size())
+                : ranked.positionAfter(cursor.lastRank(), cursor.lastProductId());
+        int to = (int) Math.min((long) from + pageSize, ranked.size());
+        List<Long> productIds = Arrays.stream(ranked.productIds(), from, to).boxed().toList();
+        String nextCursor = to > from && to < ranked.size()
+                ? new SearchCursor(ranked.scores()[to - 1], ranked.productIds()[to - 1]).encode()
+                : null;
+        // Like the Postgres backend, cursor pages report no totals
+        return new SearchResult(productIds, cursor == null ? (long) ranked.size() : null, nextCursor);
+    }
+
+    @Override
+    public void index(ProductDocument document) {
+        apply(index -> index.add(document));
+    }
+
+    @Override
+    public void remove(Long productId) {
+        apply(index -> index.remove(productId));
+    }
+
+    @Override
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                return;
+            }
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        InvertedIndex rebuilt = new InvertedIndex();
+        try {
+            long lastProductId = 0;
+            List<ProductDocument> batch;
+            do {
+                batch = productRepository.findSearchDocumentsAfter(lastProductId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                batch.forEach(rebuilt::add);
+                if (!batch.isEmpty()) {
+                    lastProductId = batch.getLast().productId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            log.error("Product search index rebuild failed", e);
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(change -> change.accept(rebuilt));
+            pendingChanges = null;
+            index = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index rebuilt with {} products", rebuilt.size());
+    }
+
+    private void apply(Consumer<InvertedIndex> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
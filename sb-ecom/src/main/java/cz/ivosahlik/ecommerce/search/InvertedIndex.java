@@ -0,0 +1,301 @@
+package cz.ivosahlik.ecommerce.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Not thread safe, InMemoryProductSearchEngine guards it with a read/write lock
+final class InvertedIndex {
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    // Name terms count twice towards term frequency and document length (BM25F style field boost)
+    private static final int NAME_BOOST = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final TreeMap<String, PostingList> terms = new TreeMap<>();
+    private final Map<Long, Integer> docsByProduct = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+
+    private long[] productIds = new long[64];
+    private int[] lengths = new int[64];
+    private String[] categories = new String[64];
+    private PostingList[][] docTerms = new PostingList[64][];
+    private int maxDoc;
+    private int liveDocs;
+    private long totalLength;
+
+    int size() {
+        return liveDocs;
+    }
+
+    void add(ProductDocument document) {
+        remove(document.productId());
+
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        int length = 0;
+        for (String token : TextAnalyzer.tokenize(document.productName())) {
+            frequencies.merge(token, NAME_BOOST, Integer::sum);
+            length += NAME_BOOST;
+        }
+        for (String token : TextAnalyzer.tokenize(document.description())) {
+            frequencies.merge(token, 1, Integer::sum);
+            length++;
+        }
+
+        int doc = maxDoc++;
+        ensureCapacity(maxDoc);
+        productIds[doc] = document.productId();
+        lengths[doc] = length;
+        categories[doc] = document.categoryName();
+
+        PostingList[] postings = new PostingList[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            PostingList postingList = terms.computeIfAbsent(entry.getKey(), term -> new PostingList());
+            postingList.add(doc, entry.getValue());
+            postings[i++] = postingList;
+        }
+        docTerms[doc] = postings;
+
+        docsByProduct.put(document.productId(), doc);
+        liveDocs++;
+        totalLength += length;
+    }
+
+    void remove(Long productId) {
+        Integer doc = docsByProduct.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        deleted.set(doc);
+        for (PostingList postingList : docTerms[doc]) {
+            postingList.documentRemoved();
+        }
+        docTerms[doc] = null;
+        categories[doc] = null;
+        liveDocs--;
+        totalLength -= lengths[doc];
+
+        if (deleted.cardinality() > Math.max(1024, liveDocs / 4)) {
+            compact();
+        }
+    }
+
+    Ranked search(String query, String category) {
+        List<String> tokens = TextAnalyzer.tokenize(query);
+        if (tokens.isEmpty() || liveDocs == 0) {
+            return Ranked.EMPTY;
+        }
+
+        float averageLength = (float) totalLength / liveDocs;
+        List<Matches> clauses = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            boolean last = i == tokens.size() - 1;
+            Matches matches = last ? prefixMatches(tokens.get(i), averageLength) : termMatches(tokens.get(i), averageLength);
+            if (matches.size == 0) {
+                return Ranked.EMPTY;
+            }
+            clauses.add(matches);
+        }
+
+        clauses.sort((left, right) -> Integer.compare(left.size, right.size));
+        Matches result = clauses.getFirst();
+        for (int i = 1; i < clauses.size() && result.size > 0; i++) {
+            result = result.intersect(clauses.get(i));
+        }
+        return rank(result, category);
+    }
+
+    private Matches termMatches(String term, float averageLength) {
+        PostingList postingList = terms.get(term);
+        return postingList == null ? Matches.EMPTY : score(postingList, averageLength);
+    }
+
+    // The last query token also matches longer terms, so "lap" finds "laptop" while the user is typing
+    private Matches prefixMatches(String prefix, float averageLength) {
+        NavigableMap<String, PostingList> expansions = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        Matches result = Matches.EMPTY;
+        int expanded = 0;
+        for (PostingList postingList : expansions.values()) {
+            if (postingList.documentFrequency() == 0) {
+                continue;
+            }
+            result = result.union(score(postingList, averageLength));
+            if (++expanded == MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private Matches score(PostingList postingList, float averageLength) {
+        int df = postingList.documentFrequency();
+        float idf = (float) Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+        Matches matches = new Matches(df);
+        for (int i = 0; i < postingList.size(); i++) {
+            int doc = postingList.doc(i);
+            if (deleted.get(doc)) {
+                continue;
+            }
+            int tf = postingList.freq(i);
+            float norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+            matches.add(doc, idf * tf * (K1 + 1) / (tf + norm));
+        }
+        return matches;
+    }
+
+    private Ranked rank(Matches matches, String category) {
+        // Sort key: inverted score bits in the high half (scores are positive), match position in the low half
+        long[] keys = new long[matches.size];
+        int count = 0;
+        for (int i = 0; i < matches.size; i++) {
+            if (category != null && !category.equals(categories[matches.docs[i]])) {
+                continue;
+            }
+            long scoreBits = Integer.MAX_VALUE - Float.floatToIntBits(matches.scores[i]);
+            keys[count++] = (scoreBits << 32) | i;
+        }
+        Arrays.sort(keys, 0, count);
+
+        long[] ranked = new long[count];
+        float[] scores = new float[count];
+        for (int i = 0; i < count; i++) {
+            int match = (int) keys[i];
+            ranked[i] = productIds[matches.docs[match]];
+            scores[i] = matches.scores[match];
+        }
+        return new Ranked(ranked, scores);
+    }
+
+    private void compact() {
+        int[] newDocIds = new int[maxDoc];
+        int next = 0;
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (deleted.get(doc)) {
+                newDocIds[doc] = -1;
+            } else {
+                newDocIds[doc] = next;
+                productIds[next] = productIds[doc];
+                lengths[next] = lengths[doc];
+                categories[next] = categories[doc];
+                docTerms[next] = docTerms[doc];
+                docsByProduct.put(productIds[next], next);
+                next++;
+            }
+        }
+        Arrays.fill(categories, next, maxDoc, null);
+        Arrays.fill(docTerms, next, maxDoc, null);
+        maxDoc = next;
+        deleted.clear();
+
+        terms.values().removeIf(postingList -> postingList.documentFrequency() == 0);
+        for (PostingList postingList : terms.values()) {
+            postingList.remap(newDocIds);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= productIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, productIds.length + (productIds.length >> 1));
+        productIds = Arrays.copyOf(productIds, newCapacity);
+        lengths = Arrays.copyOf(lengths, newCapacity);
+        categories = Arrays.copyOf(categories, newCapacity);
+        docTerms = Arrays.copyOf(docTerms, newCapacity);
+    }
+
+    // Matching product ids by descending score, scores[i] belongs to productIds[i]
+    record Ranked(long[] productIds, float[] scores) {
+        static final Ranked EMPTY = new Ranked(new long[0], new float[0]);
+
+        int size() {
+            return productIds.length;
+        }
+
+        // Where the page after the given hit starts. A hit that no longer matches continues at the next lower score.
+        int positionAfter(double lastScore, long lastProductId) {
+            for (int i = 0; i < productIds.length; i++) {
+                if (productIds[i] == lastProductId) {
+                    return i + 1;
+                }
+            }
+            int position = 0;
+            while (position < scores.length && scores[position] >= lastScore) {
+                position++;
+            }
+            return position;
+        }
+    }
+
+    // Doc ids ascending with their accumulated BM25 score
+    private static final class Matches {
+        static final Matches EMPTY = new Matches(0);
+
+        int[] docs;
+        float[] scores;
+        int size;
+
+        Matches(int capacity) {
+            docs = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void add(int doc, float score) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2 + 1);
+                scores = Arrays.copyOf(scores, size * 2 + 1);
+            }
+            docs[size] = doc;
+            scores[size] = score;
+            size++;
+        }
+
+        Matches intersect(Matches other) {
+            Matches result = new Matches(Math.min(size, other.size));
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (docs[i] < other.docs[j]) {
+                    i++;
+                } else if (docs[i] > other.docs[j]) {
+                    j++;
+                } else {
+                    result.add(docs[i], scores[i] + other.scores[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        Matches union(Matches other) {
+            if (size == 0) {
+                return other;
+            }
+            Matches result = new Matches(size + other.size);
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && docs[i] < other.docs[j])) {
+                    result.add(docs[i], scores[i]);
+                    i++;
+                } else if (i == size || docs[i] > other.docs[j]) {
+                    result.add(other.docs[j], other.scores[j]);
+                    j++;
+                } else {
+                    result.add(docs[i], Math.max(scores[i], other.scores[j]));
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package cz.ivosahlik.ecommerce.search;
+
+import cz.ivosahlik.ecommerce.repositories.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "spring.ecom.app.search.backend", havingValue = "postgres")
+public class PostgresProductSearchEngine implements ProductSearchEngine {
+
+    // The tsvector column and GIN indexes come from postgres/product-search.sql, the application issues no DDL
+    private static final String SCHEMA_CHECK = "SELECT count(*) FROM information_schema.columns "
+            + "WHERE table_schema = current_schema() AND table_name = 'products' AND column_name = 'search_vector'";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkSchema() {
+        rebuild();
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public SearchResult search(String keyword, String category, int pageNumber, int pageSize, String after) {
+        List<String> tokens = TextAnalyzer.tokenize(keyword);
+        if (tokens.isEmpty()) {
+            return new SearchResult(List.of(), 0L, null);
+        }
+        // Tokens only contain letters and digits, so they are safe tsquery lexemes
+        String tsQuery = tokens.stream().collect(Collectors.joining(" & ")) + ":*";
+        String normalized = TextAnalyzer.normalize(keyword).trim();
+        String pattern = "%" + normalized.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+
+        SearchCursor cursor = after != null && !after.isEmpty() ? SearchCursor.decode(after) : null;
+        long offset = cursor == null ? (long) pageNumber * pageSize : 0;
+
+        List<ProductSearchHit> hits = productRepository.searchFullText(tsQuery, normalized, pattern, category,
+                cursor != null ? cursor.lastRank() : null,
+                cursor != null ? cursor.lastProductId() : null,
+                pageSize + 1, offset);
+
+        boolean lastPage = hits.size() <= pageSize;
+        List<ProductSearchHit> page = lastPage ? hits : hits.subList(0, pageSize);
+        String nextCursor = lastPage ? null
+                : new SearchCursor(page.getLast().getRank(), page.getLast().getProductId()).encode();
+        List<Long> productIds = page.stream().map(ProductSearchHit::getProductId).toList();
+
+        // Cursor pages skip the COUNT, only offset pages report totals
+        Long totalHits = cursor == null ? productRepository.countFullText(tsQuery, pattern, category) : null;
+        return new SearchResult(productIds, totalHits, nextCursor);
+    }
+
+    // search_vector is a generated column, Postgres keeps it and its GIN index in sync on every write
+    @Override
+    public void index(ProductDocument document) {
+    }
+
+    @Override
+    public void remove(Long productId) {
+    }
+
+    // Nothing to rebuild, only checks that the search column is there
+    @Override
+    public void rebuild() {
+        try {
+            Integer columns = jdbcTemplate.queryForObject(SCHEMA_CHECK, Integer.class);
+            ready = columns != null && columns > 0;
+        } catch (RuntimeException e) {
+            log.error("Postgres product search schema could not be checked, falling back to LIKE queries", e);
+            return;
+        }
+        if (ready) {
+            log.info("Postgres product search schema is ready");
+        } else {
+            log.warn("Postgres product search column is missing, run postgres/product-search.sql. "
+                    + "Falling back to LIKE queries");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package cz.ivosahlik.ecommerce.search;
+
+import java.util.Arrays;
+
+final class PostingList {
+    private int[] docs = new int[4];
+    private int[] freqs = new int[4];
+    private int size;
+    private int liveDocs;
+
+    void add(int doc, int freq) {
+        if (size == docs.length) {
+            int capacity = size + (size >> 1) + 1;
+            docs = Arrays.copyOf(docs, capacity);
+            freqs = Arrays.copyOf(freqs, capacity);
+        }
+        docs[size] = doc;
+        freqs[size] = freq;
+        size++;
+        liveDocs++;
+    }
+
+    void documentRemoved() {
+        liveDocs--;
+    }
+
+    int documentFrequency() {
+        return liveDocs;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int doc(int index) {
+        return docs[index];
+    }
+
+    int freq(int index) {
+        return freqs[index];
+    }
+
+    void remap(int[] newDocIds) {
+        int written = 0;
+        for (int i = 0; i < size; i++) {
+            int doc = newDocIds[docs[i]];
+            if (doc >= 0) {
+                docs[written] = doc;
+                freqs[written] = freqs[i];
+                written++;
+            }
+        }
+        size = written;
+        liveDocs = written;
+        docs = Arrays.copyOf(docs, Math.max(written, 1));
+        freqs = Arrays.copyOf(freqs, Math.max(written, 1));
+    }
+}
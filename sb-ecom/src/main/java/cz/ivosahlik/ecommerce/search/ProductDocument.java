@@ -0,0 +1,12 @@
+package cz.ivosahlik.ecommerce.search;
+
+import cz.ivosahlik.ecommerce.model.Product;
+
+public record ProductDocument(Long productId, String productName, String description, String categoryName) {
+
+    public static ProductDocument of(Product product) {
+        String categoryName = product.getCategory() != null ? product.getCategory().getCategoryName() : null;
+        return new ProductDocument(product.getProductId(), product.getProductName(),
+                product.getDescription(), categoryName);
+    }
+}
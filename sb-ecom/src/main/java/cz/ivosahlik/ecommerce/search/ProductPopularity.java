@@ -0,0 +1,7 @@
+package cz.ivosahlik.ecommerce.search;
+
+public interface ProductPopularity {
+    Long getProductId();
+
+    Long getOrderedQuantity();
+}
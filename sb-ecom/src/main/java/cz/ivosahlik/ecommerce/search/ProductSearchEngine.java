@@ -0,0 +1,13 @@
+package cz.ivosahlik.ecommerce.search;
+
+public interface ProductSearchEngine {
+    boolean isReady();
+
+    SearchResult search(String keyword, String category, int pageNumber, int pageSize, String after);
+
+    void index(ProductDocument document);
+
+    void remove(Long productId);
+
+    void rebuild();
+}
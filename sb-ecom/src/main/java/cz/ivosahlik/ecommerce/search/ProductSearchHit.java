@@ -0,0 +1,7 @@
+package cz.ivosahlik.ecommerce.search;
+
+public interface ProductSearchHit {
+    Long getProductId();
+
+    Double getRank();
+}
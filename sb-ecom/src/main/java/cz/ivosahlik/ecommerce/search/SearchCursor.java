@@ -0,0 +1,29 @@
+package cz.ivosahlik.ecommerce.search;
+
+import cz.ivosahlik.ecommerce.exceptions.APIException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public record SearchCursor(double lastRank, long lastProductId) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = lastRank + SEPARATOR + lastProductId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR);
+            if (parts.length != 2) {
+                throw new APIException("Invalid cursor: " + token);
+            }
+            return new SearchCursor(Double.parseDouble(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new APIException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package cz.ivosahlik.ecommerce.search;
+
+import java.util.List;
+
+// totalHits is null when the backend pages by cursor and skips counting
+public record SearchResult(List<Long> productIds, Long totalHits, String nextCursor) {
+}
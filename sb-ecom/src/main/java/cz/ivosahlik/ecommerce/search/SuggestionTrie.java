@@ -0,0 +1,254 @@
+package cz.ivosahlik.ecommerce.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Not thread safe, callers guard it with a read/write lock.
+// Children are kept in sorted parallel arrays instead of maps to keep nodes small, and every node
+// caches the best weight in its subtree so top-K lookups can stop as soon as nothing better is left.
+public final class SuggestionTrie {
+
+    public enum Type {
+        PRODUCT,
+        CATEGORY
+    }
+
+    public static final class Suggestion {
+        private final String text;
+        private final Type type;
+        private long weight;
+        private int references;
+
+        private Suggestion(String text, Type type) {
+            this.text = text;
+            this.type = type;
+        }
+
+        public String text() {
+            return text;
+        }
+
+        public Type type() {
+            return type;
+        }
+
+        public long weight() {
+            return weight;
+        }
+    }
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+    private static final Comparator<Suggestion> BY_WEIGHT = Comparator.comparingLong(Suggestion::weight).reversed()
+            .thenComparing(Suggestion::text);
+
+    private static final class Node {
+        char[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+        Suggestion[] suggestions = NO_SUGGESTIONS;
+        long maxWeight = Long.MIN_VALUE;
+    }
+
+    private final Node root = new Node();
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public void add(String text, Type type, long weight) {
+        List<String> keys = keys(text);
+        if (keys.isEmpty()) {
+            return;
+        }
+        Suggestion suggestion = find(keys.getFirst(), text, type);
+        if (suggestion == null) {
+            suggestion = new Suggestion(text, type);
+            for (String key : keys) {
+                Node node = root;
+                for (int i = 0; i < key.length(); i++) {
+                    node = child(node, key.charAt(i), true);
+                }
+                node.suggestions = Arrays.copyOf(node.suggestions, node.suggestions.length + 1);
+                node.suggestions[node.suggestions.length - 1] = suggestion;
+            }
+            size++;
+        }
+        suggestion.references++;
+        suggestion.weight += weight;
+        refresh(keys);
+    }
+
+    public void remove(String text, Type type, long weight) {
+        List<String> keys = keys(text);
+        if (keys.isEmpty()) {
+            return;
+        }
+        Suggestion suggestion = find(keys.getFirst(), text, type);
+        if (suggestion == null) {
+            return;
+        }
+        suggestion.weight -= weight;
+        if (--suggestion.references == 0) {
+            for (String key : keys) {
+                Node node = path(key);
+                if (node != null) {
+                    node.suggestions = Arrays.stream(node.suggestions)
+                            .filter(existing -> existing != suggestion)
+                            .toArray(Suggestion[]::new);
+                }
+            }
+            size--;
+        }
+        refresh(keys);
+    }
+
+    public void addWeight(String text, Type type, long delta) {
+        List<String> keys = keys(text);
+        if (keys.isEmpty()) {
+            return;
+        }
+        Suggestion suggestion = find(keys.getFirst(), text, type);
+        if (suggestion != null) {
+            suggestion.weight += delta;
+            refresh(keys);
+        }
+    }
+
+    public List<Suggestion> top(String prefix, int limit) {
+        String key = TextAnalyzer.normalize(prefix).strip();
+        Node start = key.isEmpty() ? null : path(key);
+        if (start == null || start.maxWeight == Long.MIN_VALUE || limit <= 0) {
+            return List.of();
+        }
+
+        // Best-first walk: nodes ordered by the best weight they can still contribute
+        PriorityQueue<Node> frontier = new PriorityQueue<>(Comparator.comparingLong((Node node) -> node.maxWeight).reversed());
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(BY_WEIGHT.reversed());
+        Set<Suggestion> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        frontier.add(start);
+        while (!frontier.isEmpty()) {
+            Node node = frontier.poll();
+            if (best.size() == limit && node.maxWeight < best.peek().weight) {
+                break;
+            }
+            for (Suggestion suggestion : node.suggestions) {
+                if (seen.add(suggestion)) {
+                    best.add(suggestion);
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            for (Node child : node.children) {
+                if (child.maxWeight != Long.MIN_VALUE) {
+                    frontier.add(child);
+                }
+            }
+        }
+
+        List<Suggestion> result = new ArrayList<>(best);
+        result.sort(BY_WEIGHT);
+        return result;
+    }
+
+    // The full name plus every word start, so "lap" also suggests "Gaming Laptop"
+    private static List<String> keys(String text) {
+        List<String> tokens = TextAnalyzer.tokenize(text);
+        List<String> keys = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+        }
+        return keys;
+    }
+
+    private Suggestion find(String key, String text, Type type) {
+        Node node = path(key);
+        if (node == null) {
+            return null;
+        }
+        for (Suggestion suggestion : node.suggestions) {
+            if (suggestion.type == type && suggestion.text.equals(text)) {
+                return suggestion;
+            }
+        }
+        return null;
+    }
+
+    private Node path(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = child(node, key.charAt(i), false);
+        }
+        return node;
+    }
+
+    private static Node child(Node node, char label, boolean create) {
+        int index = Arrays.binarySearch(node.labels, label);
+        if (index >= 0) {
+            return node.children[index];
+        }
+        if (!create) {
+            return null;
+        }
+        int insertAt = -index - 1;
+        char[] labels = new char[node.labels.length + 1];
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.labels, 0, labels, 0, insertAt);
+        System.arraycopy(node.children, 0, children, 0, insertAt);
+        System.arraycopy(node.labels, insertAt, labels, insertAt + 1, node.labels.length - insertAt);
+        System.arraycopy(node.children, insertAt, children, insertAt + 1, node.children.length - insertAt);
+        Node created = new Node();
+        labels[insertAt] = label;
+        children[insertAt] = created;
+        node.labels = labels;
+        node.children = children;
+        return created;
+    }
+
+    private void refresh(List<String> keys) {
+        for (String key : keys) {
+            refresh(root, key, 0);
+        }
+    }
+
+    // Recomputes cached subtree weights bottom-up along one key and drops branches left empty
+    private static void refresh(Node node, String key, int depth) {
+        if (depth < key.length()) {
+            int index = Arrays.binarySearch(node.labels, key.charAt(depth));
+            if (index >= 0) {
+                Node child = node.children[index];
+                refresh(child, key, depth + 1);
+                if (child.maxWeight == Long.MIN_VALUE) {
+                    removeChild(node, index);
+                }
+            }
+        }
+        long maxWeight = Long.MIN_VALUE;
+        for (Suggestion suggestion : node.suggestions) {
+            maxWeight = Math.max(maxWeight, suggestion.weight);
+        }
+        for (Node child : node.children) {
+            maxWeight = Math.max(maxWeight, child.maxWeight);
+        }
+        node.maxWeight = maxWeight;
+    }
+
+    private static void removeChild(Node node, int index) {
+        char[] labels = new char[node.labels.length - 1];
+        Node[] children = new Node[node.children.length - 1];
+        System.arraycopy(node.labels, 0, labels, 0, index);
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.labels, index + 1, labels, index, labels.length - index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        node.labels = labels.length == 0 ? NO_LABELS : labels;
+        node.children = children.length == 0 ? NO_CHILDREN : children;
+    }
+}
@@ -1,15 +1,20 @@
 package cz.ivosahlik.ecommerce.security;
 
+import cz.ivosahlik.ecommerce.cache.RoleRegistry;
 import cz.ivosahlik.ecommerce.model.AppRole;
 import cz.ivosahlik.ecommerce.model.Role;
 import cz.ivosahlik.ecommerce.model.User;
-import cz.ivosahlik.ecommerce.repositories.RoleRepository;
 import cz.ivosahlik.ecommerce.repositories.UserRepository;
 import cz.ivosahlik.ecommerce.security.jwt.AuthEntryPointJwt;
 import cz.ivosahlik.ecommerce.security.jwt.AuthTokenFilter;
+import cz.ivosahlik.ecommerce.security.ratelimit.RateLimitFilter;
+import cz.ivosahlik.ecommerce.security.ratelimit.RateLimitProperties;
+import cz.ivosahlik.ecommerce.security.services.TokenVersionService;
 import cz.ivosahlik.ecommerce.security.services.UserDetailsServiceImpl;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -28,23 +33,28 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
 import java.util.Set;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 @RequiredArgsConstructor
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class WebSecurityConfig {
     private final UserDetailsServiceImpl userDetailsService;
     private final AuthEntryPointJwt unauthorizedHandler;
     private final AuthTokenFilter authTokenFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
 
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        // Rehashes on sign in when the stored hash is weaker than the configured strength
+        authProvider.setUserDetailsPasswordService(userDetailsService);
 
         return authProvider;
     }
@@ -56,14 +66,14 @@ public class WebSecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${spring.ecom.app.bcryptStrength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
 
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, DaoAuthenticationProvider authenticationProvider) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> {})
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
@@ -73,6 +83,8 @@ public class WebSecurityConfig {
                                 .requestMatchers("/v3/api-docs/**").permitAll()
                                 .requestMatchers("/h2-console/**").permitAll()
                                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                                .requestMatchers("/actuator/health").permitAll()
+                                .requestMatchers("/actuator/**").hasRole("ADMIN")
                                 .requestMatchers("/api/seller/**").hasAnyRole("ADMIN","SELLER")
                                 .requestMatchers("/api/public/**").permitAll()
                                 .requestMatchers("/swagger-ui/**").permitAll()
@@ -82,9 +94,10 @@ public class WebSecurityConfig {
                                 .anyRequest().authenticated()
                 );
 
-        http.authenticationProvider(authenticationProvider());
+        http.authenticationProvider(authenticationProvider);
 
         http.addFilterBefore(authTokenFilter, UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(rateLimitFilter, AuthTokenFilter.class);
         http.headers(headers -> headers.frameOptions(
                 HeadersConfigurer.FrameOptionsConfig::sameOrigin));
 
@@ -103,17 +116,14 @@ public class WebSecurityConfig {
 
 
     @Bean
-    public CommandLineRunner initData(RoleRepository roleRepository, UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public CommandLineRunner initData(RoleRegistry roleRegistry, UserRepository userRepository,
+                                      PasswordEncoder passwordEncoder, TokenVersionService tokenVersionService) {
         return args -> {
-            // Retrieve or create roles
-            Role userRole = roleRepository.findByRoleName(AppRole.ROLE_USER)
-                    .orElseGet(() -> roleRepository.save(new Role(AppRole.ROLE_USER)));
-
-            Role sellerRole = roleRepository.findByRoleName(AppRole.ROLE_SELLER)
-                    .orElseGet(() -> roleRepository.save(new Role(AppRole.ROLE_SELLER)));
-
-            Role adminRole = roleRepository.findByRoleName(AppRole.ROLE_ADMIN)
-                    .orElseGet(() -> roleRepository.save(new Role(AppRole.ROLE_ADMIN)));
+            // Create missing roles and load them all in one go
+            roleRegistry.seed();
+            Role userRole = roleRegistry.role(AppRole.ROLE_USER);
+            Role sellerRole = roleRegistry.role(AppRole.ROLE_SELLER);
+            Role adminRole = roleRegistry.role(AppRole.ROLE_ADMIN);
 
             Set<Role> userRoles = Set.of(userRole);
             Set<Role> sellerRoles = Set.of(sellerRole);
@@ -133,21 +143,15 @@ public class WebSecurityConfig {
                 userRepository.save(new User("admin", "admin@example.com", passwordEncoder.encode("adminPass")));
             }
 
-            // Update roles for existing users
-            userRepository.findByUserName("user1").ifPresent(user -> {
-                user.setRoles(userRoles);
-                userRepository.save(user);
-            });
-
-            userRepository.findByUserName("seller1").ifPresent(seller -> {
-                seller.setRoles(sellerRoles);
-                userRepository.save(seller);
-            });
-
-            userRepository.findByUserName("admin").ifPresent(admin -> {
-                admin.setRoles(adminRoles);
-                userRepository.save(admin);
-            });
+            // Update roles for existing users, tokens issued with the old roles stop working
+            Map<String, Set<Role>> seededRoles = Map.of("user1", userRoles, "seller1", sellerRoles, "admin", adminRoles);
+            seededRoles.forEach((userName, roles) -> userRepository.findByUserName(userName)
+                    .filter(user -> !user.getRoles().equals(roles))
+                    .ifPresent(user -> {
+                        user.setRoles(roles);
+                        userRepository.save(user);
+                        tokenVersionService.revokeTokens(user.getUserId());
+                    }));
         };
     }
 
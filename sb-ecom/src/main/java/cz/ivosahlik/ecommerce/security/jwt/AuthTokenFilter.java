@@ -1,6 +1,10 @@
 package cz.ivosahlik.ecommerce.security.jwt;
 
-import cz.ivosahlik.ecommerce.security.services.UserDetailsServiceImpl;
+import cz.ivosahlik.ecommerce.cache.UserIdentityCache;
+import cz.ivosahlik.ecommerce.security.services.TokenRevocationService;
+import cz.ivosahlik.ecommerce.security.services.TokenVersionService;
+import cz.ivosahlik.ecommerce.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,6 +13,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -24,7 +29,15 @@ import java.io.IOException;
 public class AuthTokenFilter extends OncePerRequestFilter {
     private final JwtUtils jwtUtils;
 
-    private final UserDetailsServiceImpl userDetailsService;
+    private final UserIdentityCache userIdentityCache;
+
+    private final TokenVersionService tokenVersionService;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    // Build the principal from the token claims instead of loading the user on every request
+    @Value("${spring.ecom.app.jwtClaimsPrincipal:true}")
+    private boolean claimsPrincipal;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
@@ -34,11 +47,9 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         logger.debug("AuthTokenFilter called for URI: {}", request.getRequestURI());
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
+            Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+            UserDetails userDetails = claims != null ? resolvePrincipal(claims) : null;
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails,
                                 null,
@@ -56,6 +67,22 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolvePrincipal(Claims claims) {
+        if (tokenRevocationService.isRevoked(claims.getId())) {
+            logger.debug("JWT token {} has been revoked", claims.getId());
+            return null;
+        }
+        UserDetailsImpl principal = claimsPrincipal ? jwtUtils.getPrincipalFromClaims(claims) : null;
+        if (principal == null) {
+            return UserDetailsImpl.build(userIdentityCache.get(claims.getSubject()));
+        }
+        if (!tokenVersionService.isCurrent(principal.getId(), principal.getTokenVersion())) {
+            logger.debug("JWT token version {} is outdated for user {}", principal.getTokenVersion(), principal.getUsername());
+            return null;
+        }
+        return principal;
+    }
+
     private String parseJwt(HttpServletRequest request) {
         // Authenticate only via JWT cookie to ensure logout (cookie clearing) results in 401
         return jwtUtils.getJwtFromCookies(request);
@@ -1,41 +1,78 @@
 package cz.ivosahlik.ecommerce.security.jwt;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import cz.ivosahlik.ecommerce.cache.RoleRegistry;
 import cz.ivosahlik.ecommerce.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.util.WebUtils;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 @Slf4j
 @Component
 public class JwtUtils {
 
-    @Value("${spring.app.jwtSecret}")
-    private String jwtSecret;
+    // Claims that let AuthTokenFilter build the principal without loading the user
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String EMAIL_CLAIM = "email";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String VERSION_CLAIM = "ver";
 
-    @Value("${spring.app.jwtExpirationMs}")
-    private int jwtExpirationMs;
+    private final SecretKey key;
+    private final JwtParser parser;
 
-    @Value("${spring.ecom.app.jwtCookieName}")
-    private String jwtCookie;
+    private final int jwtExpirationMs;
+
+    private final String jwtCookie;
 
     // Optional: set cookie domain (e.g., .example.com) to ensure deletion across subdomains
-    @Value("${spring.ecom.app.cookieDomain:}")
-    private String cookieDomain;
+    private final String cookieDomain;
+
+    // Verified token -> claims, so repeat requests with the same cookie skip the HMAC check and JSON parsing.
+    // Keyed by the whole token, a tampered payload never matches, and entries expire together with the token.
+    private final Cache<String, Claims> verifiedTokens;
+
+    public JwtUtils(@Value("${spring.app.jwtSecret}") String jwtSecret,
+                    @Value("${spring.app.jwtExpirationMs}") int jwtExpirationMs,
+                    @Value("${spring.ecom.app.jwtCookieName}") String jwtCookie,
+                    @Value("${spring.ecom.app.cookieDomain:}") String cookieDomain,
+                    @Value("${spring.ecom.app.jwtVerifiedCacheSize:10000}") long verifiedCacheSize,
+                    MeterRegistry meterRegistry) {
+        this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.jwtCookie = jwtCookie;
+        this.cookieDomain = cookieDomain;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(Expiry.creating((String token, Claims claims) -> untilExpiration(claims)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "verifiedTokens");
+    }
 
     public String getJwtFromCookies(HttpServletRequest request) {
         Cookie cookie = WebUtils.getCookie(request, jwtCookie);
@@ -54,7 +91,7 @@ public class JwtUtils {
     }
 
     public ResponseCookie generateJwtCookie(UserDetailsImpl userPrincipal) {
-        String jwt = generateTokenFromUsername(userPrincipal.getUsername());
+        String jwt = generateTokenFromUserDetails(userPrincipal);
         ResponseCookie.ResponseCookieBuilder builder = ResponseCookie.from(jwtCookie, jwt)
                 .path("/api")
                 .maxAge(24 * 60 * 60)
@@ -97,28 +134,59 @@ public class JwtUtils {
 
     public String generateTokenFromUsername(String username) {
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(username)
                 .issuedAt(new Date())
                 .expiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key())
+                .signWith(key)
                 .compact();
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parser()
-                        .verifyWith((SecretKey) key())
-                .build().parseSignedClaims(token)
-                .getPayload().getSubject();
+    public String generateTokenFromUserDetails(UserDetailsImpl userPrincipal) {
+        List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+        // jti, lets a single token be revoked on sign out
+        return Jwts.builder()
+                .id(UUID.randomUUID().toString())
+                .subject(userPrincipal.getUsername())
+                .claim(USER_ID_CLAIM, userPrincipal.getId())
+                .claim(EMAIL_CLAIM, userPrincipal.getEmail())
+                .claim(ROLES_CLAIM, roles)
+                .claim(VERSION_CLAIM, userPrincipal.getTokenVersion())
+                .issuedAt(new Date())
+                .expiration(new Date((new Date()).getTime() + jwtExpirationMs))
+                .signWith(key)
+                .compact();
+    }
+
+    // Null for tokens issued before the claims were added, those still need a user lookup
+    public UserDetailsImpl getPrincipalFromClaims(Claims claims) {
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        Integer tokenVersion = claims.get(VERSION_CLAIM, Integer.class);
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        if (userId == null || tokenVersion == null || roles == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(role -> RoleRegistry.authority(role.toString()))
+                .toList();
+        return new UserDetailsImpl(userId, claims.getSubject(), claims.get(EMAIL_CLAIM, String.class),
+                null, authorities, tokenVersion);
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    public String getUserNameFromJwtToken(String token) {
+        return verify(token).getSubject();
     }
 
     public boolean validateJwtToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    // Verifies the signature and expiry once per token, null when the token is not valid
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parser().verifyWith((SecretKey) key()).build().parseSignedClaims(authToken);
-            return true;
+            return verify(authToken);
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -128,6 +196,24 @@ public class JwtUtils {
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    private Claims verify(String token) {
+        Claims claims = token == null ? null : verifiedTokens.getIfPresent(token);
+        if (claims == null) {
+            claims = parser.parseSignedClaims(token).getPayload();
+            verifiedTokens.put(token, claims);
+        }
+        return claims;
+    }
+
+    private static Duration untilExpiration(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return Duration.ZERO;
+        }
+        Duration remaining = Duration.ofMillis(expiration.getTime() - System.currentTimeMillis());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
     }
 }
@@ -0,0 +1,20 @@
+package cz.ivosahlik.ecommerce.security.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+// spring.ecom.app.rateLimit.groups.<name>.paths/capacity/period, a client gets capacity requests per period
+// in each group. The first group with a matching path pattern applies, other paths are not limited.
+@ConfigurationProperties(prefix = "spring.ecom.app.rate-limit")
+public record RateLimitProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("10m") Duration idleTimeout,
+                                  @DefaultValue("100000") long maxClients,
+                                  Map<String, Group> groups) {
+
+    public record Group(List<String> paths, int capacity, Duration period) {
+    }
+}
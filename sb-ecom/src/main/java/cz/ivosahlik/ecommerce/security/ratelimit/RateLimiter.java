@@ -0,0 +1,94 @@
+package cz.ivosahlik.ecommerce.security.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import cz.ivosahlik.ecommerce.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// One lock-free token bucket per (route group, client). Buckets live in a Caffeine map, whose striped
+// concurrent table keeps lookups uncontended, and are dropped once a client has been idle for idleTimeout.
+@Component
+public class RateLimiter {
+
+    public record Decision(boolean allowed, int limit, int remaining, long resetSeconds, long retryAfterSeconds) {
+    }
+
+    private record Route(String name, List<PathPattern> patterns, int capacity, Duration refillInterval,
+                         Counter allowed, Counter rejected) {
+    }
+
+    private record BucketKey(String group, String client) {
+    }
+
+    private final boolean enabled;
+    private final List<Route> routes = new ArrayList<>();
+    private final Cache<BucketKey, TokenBucket> buckets;
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        Map<String, RateLimitProperties.Group> groups = properties.groups() != null ? properties.groups() : Map.of();
+        groups.forEach((name, group) -> routes.add(new Route(name,
+                group.paths().stream().map(PathPatternParser.defaultInstance::parse).toList(),
+                group.capacity(),
+                group.period().dividedBy(group.capacity()),
+                Counter.builder("http.ratelimit.requests").tag("group", name).tag("outcome", "allowed")
+                        .register(meterRegistry),
+                Counter.builder("http.ratelimit.requests").tag("group", name).tag("outcome", "rejected")
+                        .register(meterRegistry))));
+        // An idle timeout at least as long as a group's period means an evicted bucket was full anyway
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(properties.idleTimeout())
+                .maximumSize(properties.maxClients())
+                .build();
+        Gauge.builder("http.ratelimit.clients", buckets, Cache::estimatedSize)
+                .description("Clients with a rate limit bucket in memory")
+                .register(meterRegistry);
+    }
+
+    // Null when the path is not in any route group
+    public Decision tryAcquire(String path, String client) {
+        if (!enabled || routes.isEmpty()) {
+            return null;
+        }
+        Route route = match(PathContainer.parsePath(path));
+        if (route == null) {
+            return null;
+        }
+        TokenBucket bucket = buckets.get(new BucketKey(route.name(), client),
+                key -> new TokenBucket(route.capacity(), route.refillInterval()));
+        long wait = bucket.tryAcquire();
+        long resetSeconds = toSeconds(bucket.nanosUntilFull());
+        if (wait > 0) {
+            route.rejected().increment();
+            return new Decision(false, route.capacity(), 0, resetSeconds, Math.max(1, toSeconds(wait)));
+        }
+        route.allowed().increment();
+        return new Decision(true, route.capacity(), bucket.available(), resetSeconds, 0);
+    }
+
+    private Route match(PathContainer path) {
+        for (Route route : routes) {
+            for (PathPattern pattern : route.patterns()) {
+                if (pattern.matches(path)) {
+                    return route;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static long toSeconds(long nanos) {
+        return (nanos + 999_999_999L) / 1_000_000_000L;
+    }
+}
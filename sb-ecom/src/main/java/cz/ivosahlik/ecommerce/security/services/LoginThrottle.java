@@ -0,0 +1,71 @@
+package cz.ivosahlik.ecommerce.security.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import cz.ivosahlik.ecommerce.exceptions.RetryLaterException;
+import cz.ivosahlik.ecommerce.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+// Sign in attempts per account (password guessing) and per client IP (credential stuffing), checked
+// before any password hashing is done. Buckets of idle accounts and IPs are dropped.
+@Component
+public class LoginThrottle {
+
+    private final Cache<String, TokenBucket> accounts;
+    private final Cache<String, TokenBucket> clients;
+    private final int accountBurst;
+    private final Duration accountRefill;
+    private final int ipBurst;
+    private final Duration ipRefill;
+    private final Counter accountThrottled;
+    private final Counter ipThrottled;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${spring.ecom.app.loginAccountBurst:5}") int accountBurst,
+                         @Value("${spring.ecom.app.loginAccountRefillSeconds:60}") long accountRefillSeconds,
+                         @Value("${spring.ecom.app.loginIpBurst:20}") int ipBurst,
+                         @Value("${spring.ecom.app.loginIpRefillSeconds:3}") long ipRefillSeconds) {
+        this.accountBurst = accountBurst;
+        this.accountRefill = Duration.ofSeconds(accountRefillSeconds);
+        this.ipBurst = ipBurst;
+        this.ipRefill = Duration.ofSeconds(ipRefillSeconds);
+        // Idle longer than a full refill means the bucket is full again, no need to keep it
+        this.accounts = Caffeine.newBuilder()
+                .expireAfterAccess(accountRefill.multipliedBy(accountBurst))
+                .maximumSize(100_000)
+                .build();
+        this.clients = Caffeine.newBuilder()
+                .expireAfterAccess(ipRefill.multipliedBy(ipBurst))
+                .maximumSize(100_000)
+                .build();
+        this.accountThrottled = Counter.builder("login.throttled").tag("scope", "account").register(meterRegistry);
+        this.ipThrottled = Counter.builder("login.throttled").tag("scope", "ip").register(meterRegistry);
+    }
+
+    public void check(String username, String clientIp) {
+        if (clientIp != null) {
+            long wait = clients.get(clientIp, ip -> new TokenBucket(ipBurst, ipRefill)).tryAcquire();
+            if (wait > 0) {
+                ipThrottled.increment();
+                throw new RetryLaterException("Too many sign in attempts, please try again later",
+                        HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(wait));
+            }
+        }
+        if (username != null) {
+            String account = username.toLowerCase(Locale.ROOT);
+            long wait = accounts.get(account, name -> new TokenBucket(accountBurst, accountRefill)).tryAcquire();
+            if (wait > 0) {
+                accountThrottled.increment();
+                throw new RetryLaterException("Too many sign in attempts for this account, please try again later",
+                        HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(wait));
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package cz.ivosahlik.ecommerce.security.services;
+
+import cz.ivosahlik.ecommerce.exceptions.RetryLaterException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// BCrypt is deliberately slow. Verifications run on a small fixed pool with a short queue, so a login storm
+// keeps at most threads + queue Tomcat workers waiting and everything beyond is shed with a 503. The queue
+// defaults to a few hashes per thread, a longer one only makes the waiting sign ins time out instead.
+@Component
+public class PasswordVerificationExecutor {
+
+    private static final int QUEUED_PER_THREAD = 4;
+
+    private final ThreadPoolExecutor executor;
+    private final Duration retryAfter;
+    private final Counter rejected;
+
+    public PasswordVerificationExecutor(MeterRegistry meterRegistry,
+                                        @Value("${spring.ecom.app.loginThreads:0}") int threads,
+                                        @Value("${spring.ecom.app.loginQueueSize:0}") int queueSize,
+                                        @Value("${spring.ecom.app.loginRetryAfterSeconds:1}") long retryAfterSeconds) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize > 0 ? queueSize : poolSize * QUEUED_PER_THREAD),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-verify-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfter = Duration.ofSeconds(retryAfterSeconds);
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "passwordVerification");
+        this.rejected = Counter.builder("login.shed")
+                .description("Sign in attempts rejected because the password verification queue was full")
+                .register(meterRegistry);
+    }
+
+    public <T> T verify(Supplier<T> verification) {
+        Future<T> future;
+        try {
+            future = executor.submit(verification::get);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new RetryLaterException("Sign in is temporarily overloaded, please try again shortly",
+                    HttpStatus.SERVICE_UNAVAILABLE, retryAfter);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while verifying the password", e);
+        } catch (ExecutionException e) {
+            // Authentication failures must reach the caller unchanged
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
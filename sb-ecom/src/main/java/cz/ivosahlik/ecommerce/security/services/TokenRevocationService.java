@@ -0,0 +1,107 @@
+package cz.ivosahlik.ecommerce.security.services;
+
+import cz.ivosahlik.ecommerce.model.RevokedToken;
+import cz.ivosahlik.ecommerce.repositories.RevokedTokenRepository;
+import cz.ivosahlik.ecommerce.util.BloomFilter;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Signed out tokens by jti. The revoked_tokens table is the source of truth, every node keeps the unexpired
+// jtis in memory (bloom filter in front of an exact map) so AuthTokenFilter never goes to the database.
+// Revocations from other nodes arrive with the next sync, expired rows are pruned.
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+
+    // Re-read a little before the last sync, rows from other nodes may be committed with an older revoked_at
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(30);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int expectedRevocations;
+    private final Counter revocations;
+
+    // jti -> expiry
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${spring.ecom.app.jwtRevocationExpected:100000}") int expectedRevocations) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.bloomFilter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+        this.revocations = Counter.builder("jwt.revocations")
+                .description("Tokens revoked on sign out by this node")
+                .register(meterRegistry);
+        Gauge.builder("jwt.revocations.active", revoked, Map::size)
+                .description("Revoked tokens not yet expired, held in memory")
+                .register(meterRegistry);
+    }
+
+    // Legacy tokens without a jti can't be revoked and are never reported as revoked
+    public boolean isRevoked(String jti) {
+        return jti != null && bloomFilter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    @Transactional
+    public void revoke(Claims claims) {
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return;
+        }
+        Instant expiresAt = claims.getExpiration().toInstant();
+        revokedTokenRepository.save(new RevokedToken(claims.getId(), expiresAt, Instant.now()));
+        remember(claims.getId(), expiresAt);
+        revocations.increment();
+    }
+
+    // The first run (lastSync = EPOCH) loads every unexpired revocation
+    @Scheduled(fixedDelayString = "${spring.ecom.app.jwtRevocationSyncMs:10000}")
+    public void sync() {
+        Instant now = Instant.now();
+        List<RevokedToken> recent = revokedTokenRepository
+                .findByRevokedAtGreaterThanEqualAndExpiresAtAfter(lastSync.minus(SYNC_OVERLAP), now);
+        recent.forEach(token -> remember(token.getJti(), token.getExpiresAt()));
+        lastSync = now;
+    }
+
+    @Scheduled(fixedDelayString = "${spring.ecom.app.jwtRevocationPruneMs:3600000}",
+            initialDelayString = "${spring.ecom.app.jwtRevocationPruneMs:3600000}")
+    @Transactional
+    public void prune() {
+        Instant now = Instant.now();
+        int deleted = revokedTokenRepository.deleteExpired(now);
+        revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+        rebuildBloomFilter();
+        log.debug("Pruned {} expired token revocations, {} still active", deleted, revoked.size());
+    }
+
+    // Synchronized with the rebuild, so a jti added while the filter is being rebuilt is not lost
+    private synchronized void remember(String jti, Instant expiresAt) {
+        if (expiresAt.isAfter(Instant.now())) {
+            revoked.put(jti, expiresAt);
+            bloomFilter.put(jti);
+        }
+    }
+
+    private synchronized void rebuildBloomFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2), FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::put);
+        bloomFilter = rebuilt;
+    }
+}
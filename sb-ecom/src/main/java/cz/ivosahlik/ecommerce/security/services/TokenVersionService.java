@@ -0,0 +1,57 @@
+package cz.ivosahlik.ecommerce.security.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import cz.ivosahlik.ecommerce.event.UserChangedEvent;
+import cz.ivosahlik.ecommerce.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+// Claims-based principals are checked against users.token_version. Versions are cached for a few seconds,
+// so a revoked token stops working on this node right away and on the other nodes within the TTL.
+@Service
+public class TokenVersionService {
+
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LoadingCache<Long, Integer> versions;
+
+    public TokenVersionService(UserRepository userRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               MeterRegistry meterRegistry,
+                               @Value("${spring.ecom.app.jwtVersionCheckSeconds:30}") long checkSeconds) {
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.versions = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(checkSeconds))
+                .maximumSize(100_000)
+                .recordStats()
+                .build(userId -> userRepository.findTokenVersionById(userId).orElse(null));
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "tokenVersions");
+    }
+
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        Integer current = versions.get(userId);
+        return current != null && current == tokenVersion;
+    }
+
+    // Call whenever a user's roles change, the user has to sign in again to get a token with the new roles
+    @Transactional
+    public void revokeTokens(Long userId) {
+        userRepository.incrementTokenVersion(userId);
+        eventPublisher.publishEvent(UserChangedEvent.rolesChanged(userId));
+    }
+
+    // After commit, otherwise a concurrent request could cache the old version again
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        versions.invalidate(event.userId());
+    }
+}
@@ -4,14 +4,14 @@ import java.io.Serial;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import cz.ivosahlik.ecommerce.cache.RoleRegistry;
+import cz.ivosahlik.ecommerce.cache.UserIdentityCache.UserIdentity;
 import cz.ivosahlik.ecommerce.model.User;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -32,6 +32,9 @@ public class UserDetailsImpl implements UserDetails {
 
     private Collection<? extends GrantedAuthority> authorities;
 
+    @JsonIgnore
+    private int tokenVersion;
+
     public UserDetailsImpl(Long id, String username, String email, String password,
                            Collection<? extends GrantedAuthority> authorities) {
         this.id = id;
@@ -41,17 +44,39 @@ public class UserDetailsImpl implements UserDetails {
         this.authorities = authorities;
     }
 
+    public UserDetailsImpl(Long id, String username, String email, String password,
+                           Collection<? extends GrantedAuthority> authorities, int tokenVersion) {
+        this(id, username, email, password, authorities);
+        this.tokenVersion = tokenVersion;
+    }
+
     public static UserDetailsImpl build(User user) {
         List<GrantedAuthority> authorities = user.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority(role.getRoleName().name()))
-                .collect(Collectors.toList());
+                .map(role -> RoleRegistry.authority(role.getRoleName()))
+                .toList();
 
         return new UserDetailsImpl(
                 user.getUserId(),
                 user.getUserName(),
                 user.getEmail(),
                 user.getPassword(),
-                authorities);
+                authorities,
+                user.getTokenVersion());
+    }
+
+    // Request principal without the password hash, it is never needed after sign in
+    public static UserDetailsImpl build(UserIdentity identity) {
+        List<GrantedAuthority> authorities = identity.roles().stream()
+                .map(RoleRegistry::authority)
+                .toList();
+
+        return new UserDetailsImpl(
+                identity.userId(),
+                identity.userName(),
+                identity.email(),
+                null,
+                authorities,
+                identity.tokenVersion());
     }
 
     @Override
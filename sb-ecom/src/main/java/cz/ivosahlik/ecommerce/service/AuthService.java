@@ -13,13 +13,13 @@ import org.springframework.security.core.Authentication;
 
 public interface AuthService {
 
-    AuthenticationResult login(LoginRequest loginRequest);
+    AuthenticationResult login(LoginRequest loginRequest, String clientIp);
 
     ResponseEntity<MessageResponse> register(SignupRequest signUpRequest);
 
     UserInfoResponse getCurrentUserDetails(Authentication authentication);
 
-    ResponseCookie logoutUser();
+    ResponseCookie logoutUser(String jwt);
 
-    UserResponse getAllSellers(Pageable pageable);
+    UserResponse getAllSellers(Pageable pageable, String after);
 }
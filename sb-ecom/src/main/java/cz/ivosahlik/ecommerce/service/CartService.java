@@ -2,7 +2,6 @@ package cz.ivosahlik.ecommerce.service;
 
 import cz.ivosahlik.ecommerce.payload.CartDTO;
 import cz.ivosahlik.ecommerce.payload.CartItemDTO;
-import jakarta.transaction.Transactional;
 
 import java.util.List;
 
@@ -13,12 +12,13 @@ public interface CartService {
 
     CartDTO getCart(String emailId, Long cartId);
 
-    @Transactional
+    CartDTO getUserCart(String emailId);
+
     CartDTO updateProductQuantityInCart(Long productId, Integer quantity);
 
     String deleteProductFromCart(Long cartId, Long productId);
 
-    void updateProductInCarts(Long cartId, Long productId);
+    void repriceProductInCarts(Long productId);
 
     String createOrUpdateCartWithItems(List<CartItemDTO> cartItems);
 }
@@ -0,0 +1,11 @@
+package cz.ivosahlik.ecommerce.service;
+
+import cz.ivosahlik.ecommerce.payload.SuggestionDTO;
+
+import java.util.List;
+
+public interface SuggestionService {
+    List<SuggestionDTO> suggest(String prefix, Integer limit);
+
+    void rebuild();
+}
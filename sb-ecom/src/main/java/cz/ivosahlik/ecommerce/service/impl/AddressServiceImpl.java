@@ -1,13 +1,13 @@
 package cz.ivosahlik.ecommerce.service.impl;
 
 import cz.ivosahlik.ecommerce.exceptions.ResourceNotFoundException;
+import cz.ivosahlik.ecommerce.mapper.AddressMapper;
 import cz.ivosahlik.ecommerce.model.Address;
 import cz.ivosahlik.ecommerce.model.User;
 import cz.ivosahlik.ecommerce.payload.AddressDTO;
 import cz.ivosahlik.ecommerce.repositories.AddressRepository;
 import cz.ivosahlik.ecommerce.repositories.UserRepository;
 import cz.ivosahlik.ecommerce.service.AddressService;
-import org.modelmapper.ModelMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -17,25 +17,25 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AddressServiceImpl implements AddressService {
     private final AddressRepository addressRepository;
-    private final ModelMapper modelMapper;
+    private final AddressMapper addressMapper;
     private final UserRepository userRepository;
 
     @Override
     public AddressDTO createAddress(AddressDTO addressDTO, User user) {
-        Address address = modelMapper.map(addressDTO, Address.class);
+        Address address = addressMapper.toEntity(addressDTO);
         address.setUser(user);
         List<Address> addressesList = user.getAddresses();
         addressesList.add(address);
         user.setAddresses(addressesList);
         Address savedAddress = addressRepository.save(address);
-        return modelMapper.map(savedAddress, AddressDTO.class);
+        return addressMapper.toDto(savedAddress);
     }
 
     @Override
     public List<AddressDTO> getAddresses() {
         List<Address> addresses = addressRepository.findAll();
         return addresses.stream()
-                .map(address -> modelMapper.map(address, AddressDTO.class))
+                .map(addressMapper::toDto)
                 .toList();
     }
 
@@ -43,14 +43,14 @@ public class AddressServiceImpl implements AddressService {
     public AddressDTO getAddressesById(Long addressId) {
         Address address = addressRepository.findById(addressId)
                 .orElseThrow(() -> new ResourceNotFoundException("Address", "addressId", addressId));
-        return modelMapper.map(address, AddressDTO.class);
+        return addressMapper.toDto(address);
     }
 
     @Override
     public List<AddressDTO> getUserAddresses(User user) {
         List<Address> addresses = user.getAddresses();
         return addresses.stream()
-                .map(address -> modelMapper.map(address, AddressDTO.class))
+                .map(addressMapper::toDto)
                 .toList();
     }
 
@@ -73,7 +73,7 @@ public class AddressServiceImpl implements AddressService {
         user.getAddresses().add(updatedAddress);
         userRepository.save(user);
 
-        return modelMapper.map(updatedAddress, AddressDTO.class);
+        return addressMapper.toDto(updatedAddress);
     }
 
     @Override
@@ -4,6 +4,7 @@ import cz.ivosahlik.ecommerce.payload.AnalyticsResponse;
 import cz.ivosahlik.ecommerce.repositories.OrderRepository;
 import cz.ivosahlik.ecommerce.repositories.ProductRepository;
 import cz.ivosahlik.ecommerce.service.AnalyticsService;
+import cz.ivosahlik.ecommerce.util.Money;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -17,13 +18,13 @@ public class AnalyticsServiceImpl implements AnalyticsService {
     public AnalyticsResponse getAnalyticsData() {
         AnalyticsResponse response = new AnalyticsResponse();
 
-        long productCount = productRepository.count();
+        long productCount = productRepository.countByDeletedFalse();
         long totalOrders = orderRepository.count();;
-        Double totalRevenue = orderRepository.getTotalRevenue();
+        long totalRevenue = orderRepository.getTotalRevenue();
 
         response.setProductCount(String.valueOf(productCount));
         response.setTotalOrders(String.valueOf(totalOrders));
-        response.setTotalRevenue(String.valueOf(totalRevenue != null ? totalRevenue : 0));
+        response.setTotalRevenue(Money.format(totalRevenue));
         return response;
     }
 }
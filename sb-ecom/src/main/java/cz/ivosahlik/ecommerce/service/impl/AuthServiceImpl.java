@@ -1,23 +1,33 @@
 package cz.ivosahlik.ecommerce.service.impl;
 
+import cz.ivosahlik.ecommerce.cache.RoleRegistry;
+import cz.ivosahlik.ecommerce.cache.SellerDirectoryCache;
+import cz.ivosahlik.ecommerce.event.UserChangedEvent;
+import cz.ivosahlik.ecommerce.exceptions.APIException;
+import cz.ivosahlik.ecommerce.mapper.UserMapper;
 import cz.ivosahlik.ecommerce.model.AppRole;
 import cz.ivosahlik.ecommerce.model.Role;
 import cz.ivosahlik.ecommerce.model.User;
 import cz.ivosahlik.ecommerce.payload.AuthenticationResult;
 import cz.ivosahlik.ecommerce.payload.UserDTO;
 import cz.ivosahlik.ecommerce.payload.UserResponse;
-import cz.ivosahlik.ecommerce.repositories.RoleRepository;
 import cz.ivosahlik.ecommerce.repositories.UserRepository;
+import cz.ivosahlik.ecommerce.repositories.projection.UserSummary;
 import cz.ivosahlik.ecommerce.security.jwt.JwtUtils;
 import cz.ivosahlik.ecommerce.security.request.LoginRequest;
 import cz.ivosahlik.ecommerce.security.request.SignupRequest;
 import cz.ivosahlik.ecommerce.security.response.MessageResponse;
 import cz.ivosahlik.ecommerce.security.response.UserInfoResponse;
+import cz.ivosahlik.ecommerce.security.services.LoginThrottle;
+import cz.ivosahlik.ecommerce.security.services.PasswordVerificationExecutor;
+import cz.ivosahlik.ecommerce.security.services.TokenRevocationService;
 import cz.ivosahlik.ecommerce.security.services.UserDetailsImpl;
 import cz.ivosahlik.ecommerce.service.AuthService;
+import io.jsonwebtoken.Claims;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseCookie;
@@ -30,7 +40,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -42,14 +52,23 @@ public class AuthServiceImpl implements AuthService {
     private final AuthenticationManager authenticationManager;
     private final JwtUtils jwtUtils;
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
     private final PasswordEncoder passwordEncoder;
-    private final ModelMapper modelMapper;
-
+    private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginThrottle loginThrottle;
+    private final PasswordVerificationExecutor passwordVerificationExecutor;
+    private final SellerDirectoryCache sellerDirectoryCache;
+
+    // No transaction here, the request must not hold a connection while it waits for password verification
     @Override
-    public AuthenticationResult login(LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager
-                    .authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public AuthenticationResult login(LoginRequest loginRequest, String clientIp) {
+        loginThrottle.check(loginRequest.getUsername(), clientIp);
+
+        Authentication authentication = passwordVerificationExecutor.verify(() -> authenticationManager
+                    .authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword())));
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
@@ -69,11 +88,13 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public ResponseEntity<MessageResponse> register(SignupRequest signUpRequest) {
-        if (userRepository.existsByUserName(signUpRequest.getUsername())) {
+        // One round trip for both uniqueness checks, true marks a user name match
+        List<Boolean> taken = userRepository.findSignupConflicts(signUpRequest.getUsername(), signUpRequest.getEmail());
+        if (taken.contains(Boolean.TRUE)) {
             return ResponseEntity.badRequest().body(new MessageResponse("Error: Username is already taken!"));
         }
 
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
+        if (!taken.isEmpty()) {
             return ResponseEntity.badRequest().body(new MessageResponse("Error: Email is already in use!"));
         }
 
@@ -83,36 +104,24 @@ public class AuthServiceImpl implements AuthService {
                 passwordEncoder.encode(signUpRequest.getPassword()));
 
         Set<String> strRoles = signUpRequest.getRole();
-        Set<Role> roles = new HashSet<>();
+        Set<AppRole> appRoles = EnumSet.noneOf(AppRole.class);
 
         if (strRoles == null) {
-            Role userRole = roleRepository.findByRoleName(AppRole.ROLE_USER)
-                    .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-            roles.add(userRole);
+            appRoles.add(AppRole.ROLE_USER);
         } else {
             strRoles.forEach(role -> {
                 switch (role) {
-                    case "admin" -> {
-                        Role adminRole = roleRepository.findByRoleName(AppRole.ROLE_ADMIN)
-                                .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-                        roles.add(adminRole);
-                    }
-                    case "seller" -> {
-                        Role modRole = roleRepository.findByRoleName(AppRole.ROLE_SELLER)
-                                .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-                        roles.add(modRole);
-                    }
-                    default -> {
-                        Role userRole = roleRepository.findByRoleName(AppRole.ROLE_USER)
-                                .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-                        roles.add(userRole);
-                    }
+                    case "admin" -> appRoles.add(AppRole.ROLE_ADMIN);
+                    case "seller" -> appRoles.add(AppRole.ROLE_SELLER);
+                    default -> appRoles.add(AppRole.ROLE_USER);
                 }
             });
         }
 
+        Set<Role> roles = appRoles.stream().map(roleRegistry::role).collect(Collectors.toSet());
         user.setRoles(roles);
-        userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(UserChangedEvent.registered(savedUser.getUserId(), savedUser.getUserName(), appRoles));
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
 
@@ -129,22 +138,63 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
-    public ResponseCookie logoutUser() {
+    public ResponseCookie logoutUser(String jwt) {
+        // Clearing the cookie is not enough, a copied token would stay valid until it expires
+        Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+        if (claims != null) {
+            tokenRevocationService.revoke(claims);
+        }
         return jwtUtils.getCleanJwtCookie();
     }
 
     @Override
-    public UserResponse getAllSellers(Pageable pageable) {
-        Page<User> allUsers = userRepository.findByRoleName(AppRole.ROLE_SELLER, pageable);
-        List<UserDTO> userDtos = allUsers.getContent()
+    public UserResponse getAllSellers(Pageable pageable, String after) {
+        if (after != null && !after.isEmpty()) {
+            return getSellersAfter(pageable.getPageSize(), after);
+        }
+        return sellerDirectoryCache.page(pageable.getPageNumber(), pageable.getPageSize(), () -> {
+            Page<UserSummary> allUsers = userRepository.findByRoleName(AppRole.ROLE_SELLER, pageable);
+            List<UserDTO> userDtos = allUsers.getContent()
+                    .stream()
+                    .map(userMapper::toDto)
+                    .toList();
+
+            UserResponse response = getUserResponse(userDtos, allUsers);
+            if (!allUsers.isLast()) {
+                response.setNextCursor(String.valueOf(userDtos.getLast().getUserId()));
+            }
+            return response;
+        });
+    }
+
+    // The cursor is the last user id of the previous page, sellers are listed newest first
+    private UserResponse getSellersAfter(int pageSize, String after) {
+        long before;
+        try {
+            before = Long.parseLong(after);
+        } catch (NumberFormatException e) {
+            throw new APIException("Invalid cursor: " + after);
+        }
+
+        // One row beyond the page tells us whether there is a next page without a COUNT query
+        List<UserSummary> window = userRepository.findByRoleNameBefore(AppRole.ROLE_SELLER, before, Limit.of(pageSize + 1));
+        boolean lastPage = window.size() <= pageSize;
+        List<UserDTO> userDtos = (lastPage ? window : window.subList(0, pageSize))
                 .stream()
-                .map(p -> modelMapper.map(p, UserDTO.class))
+                .map(userMapper::toDto)
                 .toList();
 
-        return getUserResponse(userDtos, allUsers);
+        UserResponse response = new UserResponse();
+        response.setContent(userDtos);
+        response.setPageSize(pageSize);
+        response.setLastPage(lastPage);
+        if (!lastPage) {
+            response.setNextCursor(String.valueOf(userDtos.getLast().getUserId()));
+        }
+        return response;
     }
 
-    private static UserResponse getUserResponse(List<UserDTO> userDtos, Page<User> allUsers) {
+    private static UserResponse getUserResponse(List<UserDTO> userDtos, Page<UserSummary> allUsers) {
         UserResponse response = new UserResponse();
         response.setContent(userDtos);
         response.setPageNumber(allUsers.getNumber());
@@ -1,26 +1,41 @@
 package cz.ivosahlik.ecommerce.service.impl;
 
+import cz.ivosahlik.ecommerce.event.CartRepricingEvent;
 import cz.ivosahlik.ecommerce.exceptions.APIException;
 import cz.ivosahlik.ecommerce.exceptions.ResourceNotFoundException;
+import cz.ivosahlik.ecommerce.mapper.CartMapper;
 import cz.ivosahlik.ecommerce.model.Cart;
 import cz.ivosahlik.ecommerce.model.CartItem;
 import cz.ivosahlik.ecommerce.model.Product;
 import cz.ivosahlik.ecommerce.payload.CartDTO;
 import cz.ivosahlik.ecommerce.payload.CartItemDTO;
-import cz.ivosahlik.ecommerce.payload.ProductDTO;
 import cz.ivosahlik.ecommerce.repositories.CartItemRepository;
 import cz.ivosahlik.ecommerce.repositories.CartRepository;
 import cz.ivosahlik.ecommerce.repositories.ProductRepository;
 import cz.ivosahlik.ecommerce.service.CartService;
 import cz.ivosahlik.ecommerce.util.AuthUtil;
+import cz.ivosahlik.ecommerce.util.ConflictRetry;
+import cz.ivosahlik.ecommerce.util.Money;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CartServiceImpl implements CartService {
@@ -28,13 +43,28 @@ public class CartServiceImpl implements CartService {
     private final AuthUtil authUtil;
     private final ProductRepository productRepository;
     private final CartItemRepository cartItemRepository;
-    private final ModelMapper modelMapper;
+    private final CartMapper cartMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ConflictRetry conflictRetry;
 
+    @Value("${spring.ecom.app.cartRepriceAsyncThreshold:5000}")
+    private long repriceAsyncThreshold;
+
+    @Value("${spring.ecom.app.cartRepriceChunkSize:500}")
+    private int repriceChunkSize;
+
+    // Cart mutations run through ConflictRetry, a concurrent edit of the same cart (second tab, double click)
+    // fails the version check and the mutation is redone on the fresh state instead of losing an update
     @Override
     public CartDTO addProductToCart(Long productId, Integer quantity) {
+        return conflictRetry.execute("cart", () -> addProduct(productId, quantity));
+    }
+
+    private CartDTO addProduct(Long productId, Integer quantity) {
         Cart cart = createCart();
 
-        Product product = productRepository.findById(productId)
+        Product product = productRepository.findActiveById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
 
         CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), productId);
@@ -61,26 +91,15 @@ public class CartServiceImpl implements CartService {
         newCartItem.setProductPrice(product.getSpecialPrice());
 
         cartItemRepository.save(newCartItem);
+        cart.getCartItems().add(newCartItem);
 
         product.setQuantity(product.getQuantity());
 
-        cart.setTotalPrice(cart.getTotalPrice() + (product.getSpecialPrice() * quantity));
+        cart.setTotalPrice(cart.getTotalPrice() + Money.times(product.getSpecialPrice(), quantity));
 
         cartRepository.save(cart);
 
-        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-
-        List<CartItem> cartItems = cart.getCartItems();
-
-        Stream<ProductDTO> productStream = cartItems.stream().map(item -> {
-            ProductDTO map = modelMapper.map(item.getProduct(), ProductDTO.class);
-            map.setQuantity(item.getQuantity());
-            return map;
-        });
-
-        cartDTO.setProducts(productStream.toList());
-
-        return cartDTO;
+        return cartMapper.toDto(cart);
     }
 
     @Override
@@ -91,21 +110,9 @@ public class CartServiceImpl implements CartService {
             throw new APIException("No cart exists");
         }
 
-        return carts.stream().map(cart -> {
-            CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-
-            List<ProductDTO> products = cart.getCartItems().stream().map(cartItem -> {
-                ProductDTO productDTO = modelMapper.map(cartItem.getProduct(), ProductDTO.class);
-                productDTO.setQuantity(cartItem.getQuantity()); // Set the quantity from CartItem
-                return productDTO;
-            }).toList();
-
-
-            cartDTO.setProducts(products);
-
-            return cartDTO;
-
-        }).toList();
+        return carts.stream()
+                .map(cartMapper::toDto)
+                .toList();
     }
 
     @Override
@@ -114,20 +121,24 @@ public class CartServiceImpl implements CartService {
         if (cart == null) {
             throw new ResourceNotFoundException("Cart", "cartId", cartId);
         }
-        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-        cart.getCartItems().forEach(c ->
-                c.getProduct().setQuantity(c.getQuantity()));
-        List<ProductDTO> products = cart.getCartItems().stream()
-                .map(p -> modelMapper.map(p.getProduct(), ProductDTO.class))
-                .toList();
-        cartDTO.setProducts(products);
-        return cartDTO;
+        return cartMapper.toDto(cart);
+    }
+
+    @Override
+    public CartDTO getUserCart(String emailId) {
+        Cart cart = cartRepository.findCartByEmail(emailId);
+        if (cart == null) {
+            throw new ResourceNotFoundException("Cart", "email", emailId);
+        }
+        return cartMapper.toDto(cart);
     }
 
-    @Transactional
     @Override
     public CartDTO updateProductQuantityInCart(Long productId, Integer quantity) {
+        return conflictRetry.execute("cart", () -> updateQuantity(productId, quantity));
+    }
 
+    private CartDTO updateQuantity(Long productId, Integer quantity) {
         String emailId = authUtil.loggedInEmail();
         Cart userCart = cartRepository.findCartByEmail(emailId);
         Long cartId = userCart.getCartId();
@@ -135,7 +146,7 @@ public class CartServiceImpl implements CartService {
         Cart cart = cartRepository.findById(cartId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
 
-        Product product = productRepository.findById(productId)
+        Product product = productRepository.findActiveById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
 
         if (product.getQuantity() == 0) {
@@ -162,12 +173,14 @@ public class CartServiceImpl implements CartService {
         }
 
         if (newQuantity == 0) {
-            deleteProductFromCart(cartId, productId);
+            removeProduct(cartId, productId);
         } else {
+            // The whole line is swapped in the total, it may have been priced before a price change
+            long previousLine = Money.times(cartItem.getProductPrice(), cartItem.getQuantity());
             cartItem.setProductPrice(product.getSpecialPrice());
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
+            cartItem.setQuantity(newQuantity);
             cartItem.setDiscount(product.getDiscount());
-            cart.setTotalPrice(cart.getTotalPrice() + (cartItem.getProductPrice() * quantity));
+            cart.setTotalPrice(cart.getTotalPrice() - previousLine + Money.times(cartItem.getProductPrice(), newQuantity));
             cartRepository.save(cart);
         }
 
@@ -177,40 +190,28 @@ public class CartServiceImpl implements CartService {
         }
 
 
-        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-
-        List<CartItem> cartItems = cart.getCartItems();
-
-        Stream<ProductDTO> productStream = cartItems.stream().map(item -> {
-            ProductDTO prd = modelMapper.map(item.getProduct(), ProductDTO.class);
-            prd.setQuantity(item.getQuantity());
-            return prd;
-        });
-
-
-        cartDTO.setProducts(productStream.toList());
-
-        return cartDTO;
+        return cartMapper.toDto(cart);
     }
 
 
     private Cart createCart() {
-        Cart userCart = cartRepository.findCartByEmail(authUtil.loggedInEmail());
+        String emailId = authUtil.loggedInEmail();
+        Cart userCart = cartRepository.findCartByEmail(emailId);
         if (userCart != null) {
             return userCart;
         }
 
-        Cart cart = new Cart();
-        cart.setTotalPrice(0.00);
-        cart.setUser(authUtil.loggedInUser());
-
-        return cartRepository.save(cart);
+        cartRepository.insertIfAbsent(authUtil.loggedInUserId());
+        return cartRepository.findCartByEmail(emailId);
     }
 
 
-    @Transactional
     @Override
     public String deleteProductFromCart(Long cartId, Long productId) {
+        return conflictRetry.execute("cart", () -> removeProduct(cartId, productId));
+    }
+
+    private String removeProduct(Long cartId, Long productId) {
         Cart cart = cartRepository.findById(cartId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
 
@@ -220,8 +221,7 @@ public class CartServiceImpl implements CartService {
             throw new ResourceNotFoundException("Product", "productId", productId);
         }
 
-        cart.setTotalPrice(cart.getTotalPrice() -
-                (cartItem.getProductPrice() * cartItem.getQuantity()));
+        cart.setTotalPrice(cart.getTotalPrice() - Money.times(cartItem.getProductPrice(), cartItem.getQuantity()));
 
         cartItemRepository.deleteCartItemByProductIdAndCartId(cartId, productId);
 
@@ -229,75 +229,125 @@ public class CartServiceImpl implements CartService {
     }
 
 
+    // Set-based, the line prices of every cart holding the product and then the totals from those lines are
+    // fixed in two statements. The product row stays locked by the edit, so no other price lands in between.
+    // A very hot product is repriced after commit instead, in chunks of carts with a short transaction each.
+    @Transactional
     @Override
-    public void updateProductInCarts(Long cartId, Long productId) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
-
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
-
-        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
-
-        if (cartItem == null) {
-            throw new APIException("Product " + product.getProductName() + " not available in the cart!!!");
+    public void repriceProductInCarts(Long productId) {
+        long staleLines = cartItemRepository.countStalePrices(productId);
+        if (staleLines == 0) {
+            return;
         }
+        if (repriceAsyncThreshold > 0 && staleLines > repriceAsyncThreshold) {
+            eventPublisher.publishEvent(new CartRepricingEvent(productId, staleLines));
+            return;
+        }
+        cartItemRepository.repricePrices(productId);
+        cartRepository.recomputeTotals(productId);
+    }
 
-        double cartPrice = cart.getTotalPrice() - (cartItem.getProductPrice() * cartItem.getQuantity());
-
-        cartItem.setProductPrice(product.getSpecialPrice());
-
-        cart.setTotalPrice(cartPrice + (cartItem.getProductPrice() * cartItem.getQuantity()));
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCartRepricing(CartRepricingEvent event) {
+        Thread.ofVirtual().name("cart-reprice-" + event.productId())
+                .start(() -> repriceInChunks(event.productId()));
+    }
 
-        cartItemRepository.save(cartItem);
+    // A price edited while a chunk runs may leave its lines at the older price, but never a total that disagrees
+    // with them, the total is summed from the lines the chunk just wrote. The later edit reprices them again.
+    private void repriceInChunks(Long productId) {
+        try {
+            long after = 0;
+            int carts = 0;
+            List<Long> cartIds;
+            do {
+                cartIds = cartItemRepository.findCartIdsWithStalePrice(productId, after, Limit.of(repriceChunkSize));
+                if (cartIds.isEmpty()) {
+                    break;
+                }
+                List<Long> chunk = cartIds;
+                transactionTemplate.executeWithoutResult(status -> {
+                    cartItemRepository.repricePrices(productId, chunk);
+                    cartRepository.recomputeTotals(chunk);
+                });
+                carts += chunk.size();
+                after = chunk.getLast();
+            } while (cartIds.size() == repriceChunkSize);
+            log.info("Repriced product {} in {} carts", productId, carts);
+        } catch (RuntimeException e) {
+            log.error("Repricing carts for product {} failed", productId, e);
+        }
     }
 
-    @Transactional
     @Override
     public String createOrUpdateCartWithItems(List<CartItemDTO> cartItems) {
-        // Get user's email
-        String emailId = authUtil.loggedInEmail();
+        return conflictRetry.execute("cart", () -> syncItems(cartItems));
+    }
 
+    private String syncItems(List<CartItemDTO> cartItems) {
         // Check if an existing cart is available or create a new one
-        Cart existingCart = cartRepository.findCartByEmail(emailId);
-        if (existingCart == null) {
-            existingCart = new Cart();
-            existingCart.setTotalPrice(0.00);
-            existingCart.setUser(authUtil.loggedInUser());
-            existingCart = cartRepository.save(existingCart);
-        } else {
-            // Clear all current items in the existing cart
-            cartItemRepository.deleteAllByCartId(existingCart.getCartId());
+        Cart existingCart = createCart();
+
+        // Requested quantity per product, a product listed twice gets one line
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        cartItems.forEach(item -> quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+
+        // All products in one query
+        Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .filter(product -> !product.isDeleted())
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        quantities.keySet().stream()
+                .filter(productId -> !products.containsKey(productId))
+                .findFirst()
+                .ifPresent(productId -> {
+                    throw new ResourceNotFoundException("Product", "productId", productId);
+                });
+
+        // Diff against the lines already in the cart, only what changed is written
+        Map<Long, CartItem> existingLines = new HashMap<>();
+        List<Long> deletes = new ArrayList<>();
+        for (CartItem line : existingCart.getCartItems()) {
+            Long productId = line.getProduct().getProductId();
+            if (quantities.containsKey(productId) && existingLines.putIfAbsent(productId, line) == null) {
+                continue;
+            }
+            deletes.add(line.getCartItemId());
         }
 
-        double totalPrice = 0.00;
-
-        // Process each item in the request to add to the cart
-        for (CartItemDTO cartItemDTO : cartItems) {
-            Long productId = cartItemDTO.getProductId();
-            Integer quantity = cartItemDTO.getQuantity();
-
-            // Find the product by ID
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
-
-            // Directly update product stock and total price
-            // product.setQuantity(product.getQuantity() - quantity);
-            totalPrice += product.getSpecialPrice() * quantity;
+        List<CartItem> inserts = new ArrayList<>();
+        List<CartItem> updates = new ArrayList<>();
+        long totalPrice = 0;
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            int quantity = entry.getValue();
+            totalPrice += Money.times(product.getSpecialPrice(), quantity);
+
+            CartItem line = existingLines.get(entry.getKey());
+            if (line == null) {
+                inserts.add(new CartItem(null, existingCart, product, quantity,
+                        product.getDiscount(), product.getSpecialPrice(), null));
+            } else if (line.getQuantity() != quantity
+                    || line.getDiscount() != product.getDiscount()
+                    || line.getProductPrice() != product.getSpecialPrice()) {
+                updates.add(new CartItem(line.getCartItemId(), existingCart, product, quantity,
+                        product.getDiscount(), product.getSpecialPrice(), line.getVersion()));
+            }
+        }
 
-            // Create and save cart item
-            CartItem cartItem = new CartItem();
-            cartItem.setProduct(product);
-            cartItem.setCart(existingCart);
-            cartItem.setQuantity(quantity);
-            cartItem.setProductPrice(product.getSpecialPrice());
-            cartItem.setDiscount(product.getDiscount());
-            cartItemRepository.save(cartItem);
+        if (deletes.isEmpty() && updates.isEmpty() && inserts.isEmpty() && totalPrice == existingCart.getTotalPrice()) {
+            return "Cart created/updated with the new items successfully";
         }
 
-        // Update the cart's total price and save
-        existingCart.setTotalPrice(totalPrice);
-        cartRepository.save(existingCart);
+        // The lines are written with JDBC, so the cart version is checked and bumped by hand. It goes first,
+        // a concurrent sync of the same cart then waits on the cart row and fails before touching any line.
+        if (cartRepository.updateTotalPrice(existingCart.getCartId(), existingCart.getVersion(), totalPrice) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Cart.class, existingCart.getCartId());
+        }
+        if (!deletes.isEmpty()) {
+            cartItemRepository.deleteAllByIdIn(deletes);
+        }
+        cartItemRepository.updateAll(updates);
+        cartItemRepository.insertAll(existingCart.getCartId(), inserts);
         return "Cart created/updated with the new items successfully";
     }
 
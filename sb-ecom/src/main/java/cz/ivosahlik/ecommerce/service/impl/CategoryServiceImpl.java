@@ -1,14 +1,22 @@
 package cz.ivosahlik.ecommerce.service.impl;
 
+import cz.ivosahlik.ecommerce.cache.CatalogCache;
+import cz.ivosahlik.ecommerce.event.CategoryChangedEvent;
+import cz.ivosahlik.ecommerce.event.ProductChangedEvent;
 import cz.ivosahlik.ecommerce.exceptions.APIException;
 import cz.ivosahlik.ecommerce.exceptions.ResourceNotFoundException;
+import cz.ivosahlik.ecommerce.mapper.CategoryMapper;
 import cz.ivosahlik.ecommerce.model.Category;
+import cz.ivosahlik.ecommerce.model.Product;
 import cz.ivosahlik.ecommerce.payload.CategoryDTO;
 import cz.ivosahlik.ecommerce.payload.CategoryResponse;
 import cz.ivosahlik.ecommerce.repositories.CategoryRepository;
+import cz.ivosahlik.ecommerce.repositories.ProductRepository;
+import cz.ivosahlik.ecommerce.search.ProductDocument;
 import cz.ivosahlik.ecommerce.service.CategoryService;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -21,28 +29,31 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
-    private final ModelMapper modelMapper;
+    private final ProductRepository productRepository;
+    private final CategoryMapper categoryMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogCache catalogCache;
 
     @Override
     public CategoryResponse getAllCategories(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+        return catalogCache.categories(CatalogCache.CategoriesKey.of(pageNumber, pageSize, sortBy, sortOrder),
+                () -> loadCategories(pageNumber, pageSize, sortBy, sortOrder));
+    }
+
+    private CategoryResponse loadCategories(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
         Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc")
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
 
         Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Category> categoryPage = categoryRepository.findAll(pageDetails);
+        Page<CategoryDTO> categoryPage = categoryRepository.findCategoryDTOs(pageDetails);
 
-        List<Category> categories = categoryPage.getContent();
-        if (categories.isEmpty()) {
+        if (categoryPage.isEmpty()) {
             return new CategoryResponse();
         }
 
-        List<CategoryDTO> categoryDTOS = categories.stream()
-                .map(category -> modelMapper.map(category, CategoryDTO.class))
-                .toList();
-
         CategoryResponse categoryResponse = new CategoryResponse();
-        categoryResponse.setContent(categoryDTOS);
+        categoryResponse.setContent(categoryPage.getContent());
         categoryResponse.setPageNumber(categoryPage.getNumber());
         categoryResponse.setPageSize(categoryPage.getSize());
         categoryResponse.setTotalElements(categoryPage.getTotalElements());
@@ -53,31 +64,52 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     public CategoryDTO createCategory(CategoryDTO categoryDTO) {
-        Category category = modelMapper.map(categoryDTO, Category.class);
+        Category category = categoryMapper.toEntity(categoryDTO);
         Category categoryFromDb = categoryRepository.findByCategoryName(category.getCategoryName());
         if (categoryFromDb != null)
             throw new APIException("Category with the name " + category.getCategoryName() + " already exists !!!");
         Category savedCategory = categoryRepository.save(category);
-        return modelMapper.map(savedCategory, CategoryDTO.class);
+        eventPublisher.publishEvent(CategoryChangedEvent.created(savedCategory.getCategoryId(), savedCategory.getCategoryName()));
+        return categoryMapper.toDto(savedCategory);
     }
 
+    @Transactional
     @Override
     public CategoryDTO deleteCategory(Long categoryId) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category","categoryId",categoryId));
 
+        // Products are tombstoned in one statement instead of a cascaded delete per product,
+        // the search index and caches still hear about each one. Their listeners run after the commit,
+        // a delete that rolls back leaves them untouched
+        List<Product> products = productRepository.findByCategoryCategoryIdAndDeletedFalse(categoryId);
+        productRepository.tombstoneByCategoryId(categoryId);
         categoryRepository.delete(category);
-        return modelMapper.map(category, CategoryDTO.class);
+        products.forEach(product -> eventPublisher.publishEvent(ProductChangedEvent.deleted(product)));
+        eventPublisher.publishEvent(CategoryChangedEvent.deleted(categoryId, category.getCategoryName()));
+        return categoryMapper.toDto(category);
     }
 
     @Override
     public CategoryDTO updateCategory(CategoryDTO categoryDTO, Long categoryId) {
         Category savedCategory = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category","categoryId",categoryId));
+        String previousName = savedCategory.getCategoryName();
 
-        Category category = modelMapper.map(categoryDTO, Category.class);
+        Category category = categoryMapper.toEntity(categoryDTO);
         category.setCategoryId(categoryId);
         savedCategory = categoryRepository.save(category);
-        return modelMapper.map(savedCategory, CategoryDTO.class);
+
+        CategoryChangedEvent event = CategoryChangedEvent.updated(categoryId, savedCategory.getCategoryName(), previousName);
+        if (event.isRenamed()) {
+            // The category name is indexed with every product, re-index them under the new name
+            for (Product product : productRepository.findByCategoryCategoryIdAndDeletedFalse(categoryId)) {
+                ProductDocument previous = new ProductDocument(product.getProductId(), product.getProductName(),
+                        product.getDescription(), previousName);
+                eventPublisher.publishEvent(ProductChangedEvent.updated(product, previous));
+            }
+        }
+        eventPublisher.publishEvent(event);
+        return categoryMapper.toDto(savedCategory);
     }
 }
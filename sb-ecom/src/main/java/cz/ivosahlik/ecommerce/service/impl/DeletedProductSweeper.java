@@ -0,0 +1,103 @@
+package cz.ivosahlik.ecommerce.service.impl;
+
+import cz.ivosahlik.ecommerce.event.ProductChangedEvent;
+import cz.ivosahlik.ecommerce.repositories.CartItemRepository;
+import cz.ivosahlik.ecommerce.repositories.CartRepository;
+import cz.ivosahlik.ecommerce.repositories.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Deleting a product only tombstones it. This takes its lines out of carts afterwards, batch by batch, each
+// batch fixing the totals and deleting the lines of a bounded number of carts in its own short transaction.
+// Once no cart holds them, tombstones that never made it into an order are deleted for good.
+// Kicked after every delete and also run on a schedule, which picks up anything a kick missed.
+@Slf4j
+@Service
+public class DeletedProductSweeper {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter sweptCarts;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    // Set by a kick that arrives while a sweep is running, the running sweep goes round once more
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    public DeletedProductSweeper(CartRepository cartRepository,
+                                 CartItemRepository cartItemRepository,
+                                 ProductRepository productRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${spring.ecom.app.productSweepBatchSize:500}") int batchSize) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sweptCarts = Counter.builder("products.sweep.carts")
+                .description("Carts cleaned of deleted products")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isDeleted()) {
+            Thread.ofVirtual().name("product-sweep").start(this::sweep);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${spring.ecom.app.productSweepMs:60000}")
+    public void sweep() {
+        requested.set(true);
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (requested.getAndSet(false)) {
+                sweepBatches();
+            }
+        } catch (RuntimeException e) {
+            log.error("Sweeping deleted products from carts failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void sweepBatches() {
+        int carts = 0;
+        List<Long> cartIds;
+        do {
+            cartIds = cartItemRepository.findCartIdsWithDeletedProducts(Limit.of(batchSize));
+            if (cartIds.isEmpty()) {
+                break;
+            }
+            List<Long> batch = cartIds;
+            transactionTemplate.executeWithoutResult(status -> {
+                cartRepository.subtractDeletedProducts(batch);
+                cartItemRepository.deleteDeletedProducts(batch);
+            });
+            carts += batch.size();
+            sweptCarts.increment(batch.size());
+        } while (cartIds.size() == batchSize);
+        if (carts > 0) {
+            log.info("Removed deleted products from {} carts", carts);
+        }
+        Integer products = transactionTemplate.execute(status -> productRepository.deleteUnreferencedTombstones());
+        if (products != null && products > 0) {
+            log.info("Deleted {} products no cart or order refers to", products);
+        }
+    }
+}
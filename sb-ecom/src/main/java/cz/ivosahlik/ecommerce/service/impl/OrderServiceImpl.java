@@ -1,7 +1,9 @@
 package cz.ivosahlik.ecommerce.service.impl;
 
+import cz.ivosahlik.ecommerce.event.OrderPlacedEvent;
 import cz.ivosahlik.ecommerce.exceptions.APIException;
 import cz.ivosahlik.ecommerce.exceptions.ResourceNotFoundException;
+import cz.ivosahlik.ecommerce.mapper.OrderMapper;
 import cz.ivosahlik.ecommerce.model.Address;
 import cz.ivosahlik.ecommerce.model.Cart;
 import cz.ivosahlik.ecommerce.model.CartItem;
@@ -9,9 +11,7 @@ import cz.ivosahlik.ecommerce.model.Order;
 import cz.ivosahlik.ecommerce.model.OrderItem;
 import cz.ivosahlik.ecommerce.model.Payment;
 import cz.ivosahlik.ecommerce.model.Product;
-import cz.ivosahlik.ecommerce.model.User;
 import cz.ivosahlik.ecommerce.payload.OrderDTO;
-import cz.ivosahlik.ecommerce.payload.OrderItemDTO;
 import cz.ivosahlik.ecommerce.payload.OrderResponse;
 import cz.ivosahlik.ecommerce.repositories.AddressRepository;
 import cz.ivosahlik.ecommerce.repositories.CartRepository;
@@ -19,12 +19,13 @@ import cz.ivosahlik.ecommerce.repositories.OrderItemRepository;
 import cz.ivosahlik.ecommerce.repositories.OrderRepository;
 import cz.ivosahlik.ecommerce.repositories.PaymentRepository;
 import cz.ivosahlik.ecommerce.repositories.ProductRepository;
+import cz.ivosahlik.ecommerce.repositories.projection.OrderRow;
 import cz.ivosahlik.ecommerce.service.CartService;
 import cz.ivosahlik.ecommerce.service.OrderService;
 import cz.ivosahlik.ecommerce.util.AuthUtil;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -33,7 +34,9 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -51,10 +54,12 @@ public class OrderServiceImpl implements OrderService {
 
     private final CartService cartService;
 
-    private final ModelMapper modelMapper;
+    private final OrderMapper orderMapper;
 
     private final ProductRepository productRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
     private final AuthUtil authUtil;
 
     @Override
@@ -95,6 +100,10 @@ public class OrderServiceImpl implements OrderService {
 
         List<OrderItem> orderItems = new ArrayList<>();
         for (CartItem cartItem : cartItems) {
+            // Deleted after it was put in the cart and not swept out of it yet
+            if (cartItem.getProduct().isDeleted()) {
+                throw new APIException("Product " + cartItem.getProduct().getProductName() + " is no longer available");
+            }
             OrderItem orderItem = new OrderItem();
             orderItem.setProduct(cartItem.getProduct());
             orderItem.setQuantity(cartItem.getQuantity());
@@ -106,6 +115,10 @@ public class OrderServiceImpl implements OrderService {
 
         orderItems = orderItemRepository.saveAll(orderItems);
 
+        Map<Long, Integer> orderedQuantities = new LinkedHashMap<>();
+        orderItems.forEach(item -> orderedQuantities.merge(item.getProduct().getProductId(), item.getQuantity(), Integer::sum));
+        eventPublisher.publishEvent(new OrderPlacedEvent(savedOrder.getOrderId(), orderedQuantities));
+
         cart.getCartItems().forEach(item -> {
             int quantity = item.getQuantity();
             Product product = item.getProduct();
@@ -120,8 +133,8 @@ public class OrderServiceImpl implements OrderService {
             cartService.deleteProductFromCart(cart.getCartId(), item.getProduct().getProductId());
         });
 
-        OrderDTO orderDTO = modelMapper.map(savedOrder, OrderDTO.class);
-        orderItems.forEach(item -> orderDTO.getOrderItems().add(modelMapper.map(item, OrderItemDTO.class)));
+        OrderDTO orderDTO = orderMapper.toDto(savedOrder);
+        orderItems.forEach(item -> orderDTO.getOrderItems().add(orderMapper.toDto(item)));
 
         orderDTO.setAddressId(addressId);
 
@@ -134,15 +147,22 @@ public class OrderServiceImpl implements OrderService {
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
         Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Order> pageOrders = orderRepository.findAll(pageDetails);
-        List<Order> orders = pageOrders.getContent();
-        List<OrderDTO> orderDTOs = orders.stream()
-                .map(order -> modelMapper.map(order, OrderDTO.class))
-                .toList();
-        return getOrderResponse(orderDTOs, pageOrders);
+        Page<OrderRow> pageOrders = orderRepository.findOrderRows(pageDetails);
+        return getOrderResponse(toOrderDTOs(pageOrders.getContent()), pageOrders);
+    }
+
+    // Order rows for the page, then the items of all of them in one query
+    private List<OrderDTO> toOrderDTOs(List<OrderRow> rows) {
+        Map<Long, OrderDTO> ordersById = new LinkedHashMap<>();
+        rows.forEach(row -> ordersById.put(row.orderId(), row.toDto()));
+        if (!ordersById.isEmpty()) {
+            orderItemRepository.findRowsByOrderIds(ordersById.keySet())
+                    .forEach(item -> ordersById.get(item.orderId()).getOrderItems().add(item.toDto()));
+        }
+        return new ArrayList<>(ordersById.values());
     }
 
-    private static OrderResponse getOrderResponse(List<OrderDTO> orderDTOs, Page<Order> pageOrders) {
+    private static OrderResponse getOrderResponse(List<OrderDTO> orderDTOs, Page<OrderRow> pageOrders) {
         OrderResponse orderResponse = new OrderResponse();
         orderResponse.setContent(orderDTOs);
         orderResponse.setPageNumber(pageOrders.getNumber());
@@ -155,11 +175,11 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public OrderDTO updateOrder(Long orderId, String status) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithDetailsByOrderId(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order","orderId",orderId));
         order.setOrderStatus(status);
         orderRepository.save(order);
-        return modelMapper.map(order, OrderDTO.class);
+        return orderMapper.toDto(order);
     }
 
     @Override
@@ -169,26 +189,8 @@ public class OrderServiceImpl implements OrderService {
                 : Sort.by(sortBy).descending();
         Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
 
-        User seller = authUtil.loggedInUser();
-
-        Page<Order> pageOrders = orderRepository.findAll(pageDetails);
-
-        List<Order> sellerOrders = pageOrders.getContent().stream()
-                .filter(order -> order.getOrderItems().stream()
-                        .anyMatch(orderItem -> {
-                            var product = orderItem.getProduct();
-                            if (product == null || product.getUser() == null) {
-                                return false;
-                            }
-                            return product.getUser().getUserId().equals(
-                                    seller.getUserId());
-                        }))
-                .toList();
-
-        List<OrderDTO> orderDTOs = sellerOrders.stream()
-                .map(order -> modelMapper.map(order, OrderDTO.class))
-                .toList();
-        return getOrderResponse(orderDTOs, pageOrders);
+        Page<OrderRow> pageOrders = orderRepository.findOrderRowsBySeller(authUtil.loggedInUserId(), pageDetails);
+        return getOrderResponse(toOrderDTOs(pageOrders.getContent()), pageOrders);
     }
 
 
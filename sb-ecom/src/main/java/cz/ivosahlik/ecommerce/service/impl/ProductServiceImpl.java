@@ -1,24 +1,31 @@
 package cz.ivosahlik.ecommerce.service.impl;
 
+import cz.ivosahlik.ecommerce.cache.CatalogCache;
+import cz.ivosahlik.ecommerce.event.ProductChangedEvent;
 import cz.ivosahlik.ecommerce.exceptions.APIException;
 import cz.ivosahlik.ecommerce.exceptions.ResourceNotFoundException;
-import cz.ivosahlik.ecommerce.model.Cart;
+import cz.ivosahlik.ecommerce.mapper.ProductMapper;
 import cz.ivosahlik.ecommerce.model.Category;
 import cz.ivosahlik.ecommerce.model.Product;
 import cz.ivosahlik.ecommerce.model.User;
-import cz.ivosahlik.ecommerce.payload.CartDTO;
 import cz.ivosahlik.ecommerce.payload.ProductDTO;
 import cz.ivosahlik.ecommerce.payload.ProductResponse;
-import cz.ivosahlik.ecommerce.repositories.CartRepository;
 import cz.ivosahlik.ecommerce.repositories.CategoryRepository;
 import cz.ivosahlik.ecommerce.repositories.ProductRepository;
+import cz.ivosahlik.ecommerce.repositories.ProductSpecifications;
+import cz.ivosahlik.ecommerce.search.ProductDocument;
+import cz.ivosahlik.ecommerce.search.ProductSearchEngine;
+import cz.ivosahlik.ecommerce.search.SearchResult;
 import cz.ivosahlik.ecommerce.service.CartService;
 import cz.ivosahlik.ecommerce.service.FileService;
 import cz.ivosahlik.ecommerce.service.ProductService;
 import cz.ivosahlik.ecommerce.util.AuthUtil;
+import cz.ivosahlik.ecommerce.util.Money;
+import cz.ivosahlik.ecommerce.util.ProductCursor;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -29,17 +36,23 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductServiceImpl implements ProductService {
-    private final CartRepository cartRepository;
     private final CartService cartService;
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
-    private final ModelMapper modelMapper;
+    private final ProductMapper productMapper;
     private final FileService fileService;
     private final AuthUtil authUtil;
+    private final ProductSearchEngine productSearchEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogCache catalogCache;
 
     @Value("${project.image}")
     private String path;
@@ -62,15 +75,14 @@ public class ProductServiceImpl implements ProductService {
         if (!isProductNotPresent) {
             throw new APIException("Product already exist!!");
         }
-        Product product = modelMapper.map(productDTO, Product.class);
+        Product product = productMapper.toEntity(productDTO);
         product.setImage("default.png");
         product.setCategory(category);
         product.setUser(authUtil.loggedInUser());
-        double specialPrice = product.getPrice() -
-                ((product.getDiscount() * 0.01) * product.getPrice());
-        product.setSpecialPrice(specialPrice);
+        product.setSpecialPrice(Money.discounted(product.getPrice(), product.getDiscount()));
         Product savedProduct = productRepository.save(product);
-        return modelMapper.map(savedProduct, ProductDTO.class);
+        eventPublisher.publishEvent(ProductChangedEvent.created(savedProduct));
+        return productMapper.toDto(savedProduct);
 
     }
 
@@ -80,41 +92,32 @@ public class ProductServiceImpl implements ProductService {
                                           String sortBy,
                                           String sortOrder,
                                           String keyword,
-                                          String category) {
-        Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc")
-                ? Sort.by(sortBy).ascending()
-                : Sort.by(sortBy).descending();
-
-        Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Specification<Product> spec = Specification.allOf();
-        if (keyword != null && !keyword.isEmpty()) {
-            spec = spec.and((root, query, criteriaBuilder) ->
-                    criteriaBuilder.like(criteriaBuilder.lower(root.get("productName")), "%" +
-                            keyword.toLowerCase() + "%"));
-        }
+                                          String category,
+                                          String after) {
+        CatalogCache.ProductsKey key = CatalogCache.ProductsKey.of(keyword, category, null,
+                pageNumber, pageSize, sortBy, sortOrder, after);
+        return catalogCache.products(key, () ->
+                loadAllProducts(pageNumber, pageSize, sortBy, sortOrder, keyword, category, after));
+    }
 
-        if (category != null && !category.isEmpty()) {
-            spec = spec.and((root, query, criteriaBuilder) ->
-                    criteriaBuilder.like(root.get("category").get("categoryName"), category));
+    private ProductResponse loadAllProducts(Integer pageNumber,
+                                            Integer pageSize,
+                                            String sortBy,
+                                            String sortOrder,
+                                            String keyword,
+                                            String category,
+                                            String after) {
+        if (keyword != null && !keyword.isEmpty() && productSearchEngine.isReady()) {
+            SearchResult result = productSearchEngine.search(keyword, emptyToNull(category), pageNumber, pageSize, after);
+            return getSearchResponse(withImageUrls(findAllInOrder(result.productIds())), result, pageNumber, pageSize);
         }
 
-        Page<Product> pageProducts = productRepository.findAll(spec, pageDetails);
-
-        List<Product> products = pageProducts.getContent();
-
-        List<ProductDTO> productDTOS = products.stream()
-                .map(product -> {
-                    ProductDTO productDTO = modelMapper.map(product, ProductDTO.class);
-                    productDTO.setImage(constructImageUrl(product.getImage()));
-                    return productDTO;
-                })
-                .toList();
-
-        return getProductResponse(productDTOS, pageProducts);
+        return getProducts(ProductSpecifications.listing(keyword, category),
+                pageNumber, pageSize, sortBy, sortOrder, after);
     }
 
     private static ProductResponse getProductResponse(List<ProductDTO> productDTOS,
-                                                      Page<Product> pageProducts) {
+                                                      Page<ProductDTO> pageProducts) {
         ProductResponse productResponse = new ProductResponse();
         productResponse.setContent(productDTOS);
         productResponse.setPageNumber(pageProducts.getNumber());
@@ -126,56 +129,125 @@ public class ProductServiceImpl implements ProductService {
     }
 
 
+    private static ProductResponse getSearchResponse(List<ProductDTO> productDTOS,
+                                                     SearchResult result,
+                                                     Integer pageNumber,
+                                                     Integer pageSize) {
+        ProductResponse productResponse = new ProductResponse();
+        productResponse.setContent(productDTOS);
+        productResponse.setPageSize(pageSize);
+        productResponse.setNextCursor(result.nextCursor());
+        if (result.totalHits() == null) {
+            productResponse.setLastPage(result.nextCursor() == null);
+            return productResponse;
+        }
+        int totalPages = (int) ((result.totalHits() + pageSize - 1) / pageSize);
+        productResponse.setPageNumber(pageNumber);
+        productResponse.setTotalElements(result.totalHits());
+        productResponse.setTotalPages(totalPages);
+        productResponse.setLastPage(pageNumber + 1 >= totalPages);
+        return productResponse;
+    }
+
+    private List<ProductDTO> findAllInOrder(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductDTO> productsById = productRepository.findProductDTOsByIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductDTO::getProductId, Function.identity()));
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
     @Override
     public ProductResponse getAllProductsForAdmin(Integer pageNumber,
                                                   Integer pageSize,
                                                   String sortBy,
-                                                  String sortOrder) {
-        Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc")
-                ? Sort.by(sortBy).ascending()
-                : Sort.by(sortBy).descending();
-
-        Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> pageProducts = productRepository.findAll(pageDetails);
-
-        List<Product> products = pageProducts.getContent();
-
-        List<ProductDTO> productDTOS = products.stream()
-                .map(product -> {
-                    ProductDTO productDTO = modelMapper.map(product, ProductDTO.class);
-                    productDTO.setImage(constructImageUrl(product.getImage()));
-                    return productDTO;
-                })
-                .toList();
-
-        return getProductResponse(productDTOS, pageProducts);
+                                                  String sortOrder,
+                                                  String after) {
+        return getProducts(Specification.allOf(), pageNumber, pageSize, sortBy, sortOrder, after);
     }
 
     @Override
     public ProductResponse getAllProductsForSeller(Integer pageNumber,
                                                    Integer pageSize,
                                                    String sortBy,
-                                                   String sortOrder) {
-        Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc")
-                ? Sort.by(sortBy).ascending()
-                : Sort.by(sortBy).descending();
+                                                   String sortOrder,
+                                                   String after) {
+        User user = authUtil.loggedInUser();
+        return getProducts(ProductSpecifications.soldBy(user), pageNumber, pageSize, sortBy, sortOrder, after);
+    }
 
-        Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
+    private ProductResponse getProducts(Specification<Product> spec,
+                                        Integer pageNumber,
+                                        Integer pageSize,
+                                        String sortBy,
+                                        String sortOrder,
+                                        String after) {
+        spec = spec.and(ProductSpecifications.active());
+        boolean ascending = sortOrder.equalsIgnoreCase("asc");
+
+        if (after != null && !after.isEmpty()) {
+            return getProductsAfter(spec, pageSize, sortBy, ascending, after);
+        }
 
-        User user = authUtil.loggedInUser();
-        Page<Product> pageProducts = productRepository.findByUser(user, pageDetails);
+        // Same order as the keyset path, the next cursor continues exactly where this page ends
+        Pageable pageDetails = PageRequest.of(pageNumber, pageSize, seekSort(sortBy, ascending));
+        Page<ProductDTO> pageProducts = productRepository.findProductDTOs(spec, pageDetails);
 
-        List<Product> products = pageProducts.getContent();
+        List<ProductDTO> products = pageProducts.getContent();
 
-        List<ProductDTO> productDTOS = products.stream()
-                .map(product -> {
-                    ProductDTO productDTO = modelMapper.map(product, ProductDTO.class);
-                    productDTO.setImage(constructImageUrl(product.getImage()));
-                    return productDTO;
-                })
-                .toList();
+        ProductResponse productResponse = getProductResponse(withImageUrls(products), pageProducts);
+        if (!pageProducts.isLast() && ProductCursor.supports(sortBy)) {
+            productResponse.setNextCursor(ProductCursor.after(products.getLast(), sortBy, ascending).encode());
+        }
+        return productResponse;
+    }
+
+    private ProductResponse getProductsAfter(Specification<Product> spec,
+                                             Integer pageSize,
+                                             String sortBy,
+                                             boolean ascending,
+                                             String after) {
+        if (!ProductCursor.supports(sortBy)) {
+            throw new APIException("Cursor pagination is not supported for sorting by " + sortBy);
+        }
+        ProductCursor cursor = ProductCursor.decode(after, sortBy, ascending);
+
+        // One row beyond the page tells us whether there is a next page without a COUNT query
+        List<ProductDTO> window = productRepository.findProductDTOs(spec.and(ProductSpecifications.seekAfter(cursor)),
+                seekSort(sortBy, ascending), pageSize + 1);
+
+        boolean lastPage = window.size() <= pageSize;
+        List<ProductDTO> products = lastPage ? window : window.subList(0, pageSize);
+
+        ProductResponse productResponse = new ProductResponse();
+        productResponse.setContent(withImageUrls(products));
+        productResponse.setPageSize(pageSize);
+        productResponse.setLastPage(lastPage);
+        if (!lastPage) {
+            productResponse.setNextCursor(ProductCursor.after(products.getLast(), sortBy, ascending).encode());
+        }
+        return productResponse;
+    }
+
+    // The product id breaks ties, rows with an equal sort value keep one stable order
+    private static Sort seekSort(String sortBy, boolean ascending) {
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return sortBy.equals(ProductCursor.ID_FIELD)
+                ? Sort.by(direction, ProductCursor.ID_FIELD)
+                : Sort.by(direction, sortBy, ProductCursor.ID_FIELD);
+    }
 
-        return getProductResponse(productDTOS, pageProducts);
+    private List<ProductDTO> withImageUrls(List<ProductDTO> products) {
+        products.forEach(product -> product.setImage(constructImageUrl(product.getImage())));
+        return products;
     }
 
     private String constructImageUrl(String imageName) {
@@ -188,6 +260,17 @@ public class ProductServiceImpl implements ProductService {
                                             Integer pageSize,
                                             String sortBy,
                                             String sortOrder) {
+        CatalogCache.ProductsKey key = CatalogCache.ProductsKey.of(null, null, categoryId,
+                pageNumber, pageSize, sortBy, sortOrder, null);
+        return catalogCache.products(key, () ->
+                loadByCategory(categoryId, pageNumber, pageSize, sortBy, sortOrder));
+    }
+
+    private ProductResponse loadByCategory(Long categoryId,
+                                           Integer pageNumber,
+                                           Integer pageSize,
+                                           String sortBy,
+                                           String sortOrder) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() ->
                         new ResourceNotFoundException("Category", "categoryId", categoryId));
@@ -197,19 +280,13 @@ public class ProductServiceImpl implements ProductService {
                 : Sort.by(sortBy).descending();
 
         Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> pageProducts = productRepository.findByCategoryOrderByPriceAsc(category, pageDetails);
+        Page<ProductDTO> pageProducts = productRepository.findProductDTOsByCategoryId(categoryId, pageDetails);
 
-        List<Product> products = pageProducts.getContent();
-
-        if (products.isEmpty()) {
+        if (pageProducts.isEmpty()) {
             throw new APIException(category.getCategoryName() + " category does not have any products");
         }
 
-        List<ProductDTO> productDTOS = products.stream()
-                .map(product -> modelMapper.map(product, ProductDTO.class))
-                .toList();
-
-        return getProductResponse(productDTOS, pageProducts);
+        return getProductResponse(pageProducts.getContent(), pageProducts);
     }
 
     @Override
@@ -217,33 +294,40 @@ public class ProductServiceImpl implements ProductService {
                                                   Integer pageNumber,
                                                   Integer pageSize,
                                                   String sortBy,
-                                                  String sortOrder) {
+                                                  String sortOrder,
+                                                  String after) {
+        if (productSearchEngine.isReady()) {
+            SearchResult result = productSearchEngine.search(keyword, null, pageNumber, pageSize, after);
+            if (result.productIds().isEmpty()) {
+                throw new APIException("Products not found with keyword: " + keyword);
+            }
+            return getSearchResponse(findAllInOrder(result.productIds()), result, pageNumber, pageSize);
+        }
+
         Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc")
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
 
         Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> pageProducts = productRepository
-                .findByProductNameLikeIgnoreCase('%' + keyword + '%', pageDetails);
-
-        List<Product> products = pageProducts.getContent();
-        List<ProductDTO> productDTOS = products.stream()
-                .map(product -> modelMapper.map(product, ProductDTO.class))
-                .toList();
+        Page<ProductDTO> pageProducts = productRepository.findProductDTOs(
+                ProductSpecifications.nameContains(keyword).and(ProductSpecifications.active()), pageDetails);
 
-        if (products.isEmpty()) {
+        if (pageProducts.isEmpty()) {
             throw new APIException("Products not found with keyword: " + keyword);
         }
 
-        return getProductResponse(productDTOS, pageProducts);
+        return getProductResponse(pageProducts.getContent(), pageProducts);
     }
 
+    // One transaction, so carts never see a price the product was not saved with
+    @Transactional
     @Override
     public ProductDTO updateProduct(Long productId, ProductDTO productDTO) {
-        Product productFromDb = productRepository.findById(productId)
+        Product productFromDb = productRepository.findActiveById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+        ProductDocument previous = ProductDocument.of(productFromDb);
 
-        Product product = modelMapper.map(productDTO, Product.class);
+        Product product = productMapper.toEntity(productDTO);
 
         productFromDb.setProductName(product.getProductName());
         productFromDb.setDescription(product.getDescription());
@@ -253,45 +337,37 @@ public class ProductServiceImpl implements ProductService {
         productFromDb.setSpecialPrice(product.getSpecialPrice());
 
         Product savedProduct = productRepository.save(productFromDb);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(savedProduct, previous));
 
-        List<Cart> carts = cartRepository.findCartsByProductId(productId);
-
-        List<CartDTO> cartDTOs = carts.stream().map(cart -> {
-            CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-            List<ProductDTO> products = cart.getCartItems().stream()
-                    .map(p -> modelMapper.map(p.getProduct(), ProductDTO.class)).toList();
-            cartDTO.setProducts(products);
-            return cartDTO;
-        }).toList();
+        cartService.repriceProductInCarts(productId);
 
-        cartDTOs.forEach(cart -> cartService.updateProductInCarts(cart.getCartId(), productId));
-
-        return modelMapper.map(savedProduct, ProductDTO.class);
+        return productMapper.toDto(savedProduct);
     }
 
     @Override
     public ProductDTO deleteProduct(Long productId) {
-        Product product = productRepository.findById(productId)
+        Product product = productRepository.findActiveById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
 
-        // DELETE
-        List<Cart> carts = cartRepository.findCartsByProductId(productId);
-        carts.forEach(cart -> cartService.deleteProductFromCart(cart.getCartId(), productId));
-
-        productRepository.delete(product);
-        return modelMapper.map(product, ProductDTO.class);
+        // Tombstone, DeletedProductSweeper removes the product from carts in the background
+        product.setDeleted(true);
+        productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(product));
+        return productMapper.toDto(product);
     }
 
     @Override
     public ProductDTO updateProductImage(Long productId, MultipartFile image) throws IOException {
-        Product productFromDb = productRepository.findById(productId)
+        Product productFromDb = productRepository.findActiveById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+        ProductDocument previous = ProductDocument.of(productFromDb);
 
         String fileName = fileService.uploadImage(path, image);
         productFromDb.setImage(fileName);
 
         Product updatedProduct = productRepository.save(productFromDb);
-        return modelMapper.map(updatedProduct, ProductDTO.class);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(updatedProduct, previous));
+        return productMapper.toDto(updatedProduct);
     }
 
 
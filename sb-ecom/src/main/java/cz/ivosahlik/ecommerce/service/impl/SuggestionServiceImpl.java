@@ -0,0 +1,181 @@
+package cz.ivosahlik.ecommerce.service.impl;
+
+import cz.ivosahlik.ecommerce.event.OrderPlacedEvent;
+import cz.ivosahlik.ecommerce.event.ProductChangedEvent;
+import cz.ivosahlik.ecommerce.payload.SuggestionDTO;
+import cz.ivosahlik.ecommerce.repositories.OrderItemRepository;
+import cz.ivosahlik.ecommerce.repositories.ProductRepository;
+import cz.ivosahlik.ecommerce.search.ProductDocument;
+import cz.ivosahlik.ecommerce.search.ProductPopularity;
+import cz.ivosahlik.ecommerce.search.SuggestionTrie;
+import cz.ivosahlik.ecommerce.service.SuggestionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SuggestionServiceImpl implements SuggestionService {
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 50;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Suggestions suggestions = new Suggestions();
+    private List<Consumer<Suggestions>> pendingChanges;
+
+    private record IndexedProduct(String productName, String categoryName, long weight) {
+    }
+
+    // Trie plus what each product contributed to it, so updates and deletes can take it back out
+    private static final class Suggestions {
+        final SuggestionTrie trie = new SuggestionTrie();
+        final Map<Long, IndexedProduct> products = new HashMap<>();
+
+        void put(ProductDocument document, long popularity) {
+            IndexedProduct previous = products.get(document.productId());
+            long weight = previous != null ? previous.weight() : 1 + popularity;
+            remove(document.productId());
+
+            IndexedProduct product = new IndexedProduct(document.productName(), document.categoryName(), weight);
+            trie.add(product.productName(), SuggestionTrie.Type.PRODUCT, weight);
+            if (product.categoryName() != null) {
+                trie.add(product.categoryName(), SuggestionTrie.Type.CATEGORY, 1);
+            }
+            products.put(document.productId(), product);
+        }
+
+        void addOrdered(Long productId, long quantity) {
+            IndexedProduct product = products.get(productId);
+            if (product == null) {
+                return;
+            }
+            trie.addWeight(product.productName(), SuggestionTrie.Type.PRODUCT, quantity);
+            products.put(productId, new IndexedProduct(product.productName(), product.categoryName(),
+                    product.weight() + quantity));
+        }
+
+        void remove(Long productId) {
+            IndexedProduct product = products.remove(productId);
+            if (product == null) {
+                return;
+            }
+            trie.remove(product.productName(), SuggestionTrie.Type.PRODUCT, product.weight());
+            if (product.categoryName() != null) {
+                trie.remove(product.categoryName(), SuggestionTrie.Type.CATEGORY, 1);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread.ofVirtual().name("suggestion-rebuild").start(this::rebuild);
+    }
+
+    // After commit, a rolled back write never changes the suggestions
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isDeleted()) {
+            apply(current -> current.remove(event.productId()));
+        } else {
+            apply(current -> current.put(event.document(), 0));
+        }
+    }
+
+    // Popularity is the ordered quantity, the same a rebuild reads from the order items. An order committed
+    // while a rebuild reads popularity may count twice until the next rebuild.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        apply(current -> event.orderedQuantities().forEach(current::addOrdered));
+    }
+
+    @Override
+    public List<SuggestionDTO> suggest(String prefix, Integer limit) {
+        int size = limit == null ? DEFAULT_LIMIT : Math.clamp(limit, 1, MAX_LIMIT);
+        lock.readLock().lock();
+        try {
+            return suggestions.trie.top(prefix, size).stream()
+                    .map(suggestion -> new SuggestionDTO(suggestion.text(), suggestion.type().name()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                return;
+            }
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Suggestions rebuilt = new Suggestions();
+        try {
+            Map<Long, Long> popularity = orderItemRepository.findProductPopularity().stream()
+                    .collect(Collectors.toMap(ProductPopularity::getProductId, ProductPopularity::getOrderedQuantity));
+            long lastProductId = 0;
+            List<ProductDocument> batch;
+            do {
+                batch = productRepository.findSearchDocumentsAfter(lastProductId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (ProductDocument document : batch) {
+                    rebuilt.put(document, popularity.getOrDefault(document.productId(), 0L));
+                }
+                if (!batch.isEmpty()) {
+                    lastProductId = batch.getLast().productId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            log.error("Suggestion trie rebuild failed", e);
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(change -> change.accept(rebuilt));
+            pendingChanges = null;
+            suggestions = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Suggestion trie rebuilt with {} entries", rebuilt.trie.size());
+    }
+
+    private void apply(Consumer<Suggestions> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(suggestions);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
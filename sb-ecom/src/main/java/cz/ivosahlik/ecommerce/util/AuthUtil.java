@@ -1,42 +1,53 @@
 package cz.ivosahlik.ecommerce.util;
 
+import cz.ivosahlik.ecommerce.cache.UserIdentityCache;
+import cz.ivosahlik.ecommerce.cache.UserIdentityCache.UserIdentity;
 import cz.ivosahlik.ecommerce.model.User;
 import cz.ivosahlik.ecommerce.repositories.UserRepository;
+import cz.ivosahlik.ecommerce.security.services.UserDetailsImpl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 
+import java.util.stream.Collectors;
+
 @RequiredArgsConstructor
 @Component
 public class AuthUtil {
 
     public static final String USER_NOT_FOUND_WITH_USERNAME = "User Not Found with username: ";
     private final UserRepository userRepository;
+    private final UserIdentityCache userIdentityCache;
 
-    public String loggedInEmail(){
+    // AuthTokenFilter puts the full identity into the request's security context, so this is normally free.
+    // Other principals (e.g. @WithMockUser) only carry the username and go through the identity cache.
+    public UserIdentity loggedInIdentity(){
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByUserName(authentication.getName())
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND_WITH_USERNAME + authentication.getName()));
+        if (authentication.getPrincipal() instanceof UserDetailsImpl userDetails) {
+            return new UserIdentity(userDetails.getId(),
+                    userDetails.getUsername(),
+                    userDetails.getEmail(),
+                    userDetails.getAuthorities().stream()
+                            .map(GrantedAuthority::getAuthority)
+                            .collect(Collectors.toUnmodifiableSet()),
+                    userDetails.getTokenVersion());
+        }
+        return userIdentityCache.get(authentication.getName());
+    }
 
-        return user.getEmail();
+    public String loggedInEmail(){
+        return loggedInIdentity().email();
     }
 
     public Long loggedInUserId(){
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByUserName(authentication.getName())
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND_WITH_USERNAME + authentication.getName()));
-
-        return user.getUserId();
+        return loggedInIdentity().userId();
     }
 
+    // Id-only proxy, the users row is selected only if something reads more than the id
     public User loggedInUser(){
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        return userRepository.findByUserName(authentication.getName())
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND_WITH_USERNAME + authentication.getName()));
-
+        return userRepository.getReferenceById(loggedInUserId());
     }
 
 
@@ -0,0 +1,85 @@
+package cz.ivosahlik.ecommerce.util;
+
+import cz.ivosahlik.ecommerce.exceptions.RetryLaterException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Runs a read-modify-write in its own transaction and runs it again when a concurrent writer got there first
+// (stale @Version, lock timeout, deadlock, or a unique row inserted by both), with a short jittered backoff.
+// Inside a surrounding transaction the work just joins it, a retry there would have to restart the caller's
+// transaction as well.
+@Slf4j
+@Component
+public class ConflictRetry {
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public ConflictRetry(PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${spring.ecom.app.conflictRetryAttempts:5}") int maxAttempts,
+                         @Value("${spring.ecom.app.conflictRetryBackoffMs:10}") long backoffMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(1, backoffMillis);
+    }
+
+    public <T> T execute(String operation, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    count(operation, "exhausted");
+                    log.debug("Giving up {} after {} conflicting attempts", operation, attempt, e);
+                    throw new RetryLaterException("Your " + operation + " was changed at the same time, please try again",
+                            HttpStatus.CONFLICT, Duration.ofSeconds(1));
+                }
+                count(operation, "retried");
+                backOff(attempt);
+            }
+        }
+    }
+
+    // Only a duplicate key is a lost race, any other integrity violation fails the same way on every attempt
+    private static boolean isConflict(RuntimeException e) {
+        return e instanceof ConcurrencyFailureException
+                || e.getCause() instanceof ConstraintViolationException violation
+                && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE;
+    }
+
+    private void count(String operation, String outcome) {
+        meterRegistry.counter("transaction.conflicts", "operation", operation, "outcome", outcome).increment();
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis, backoffMillis * 2 + 1) * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RetryLaterException("Interrupted while retrying", HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(1));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package cz.ivosahlik.ecommerce.util;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.math.BigDecimal;
+
+// A long amount in minor units that clients see as a decimal number, {"price":100.50} for 10050,
+// so the API keeps the shape it had with double prices
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+@JacksonAnnotationsInside
+@JsonSerialize(using = MinorUnits.Serializer.class)
+@JsonDeserialize(using = MinorUnits.Deserializer.class)
+public @interface MinorUnits {
+
+    class Serializer extends StdSerializer<Long> {
+
+        public Serializer() {
+            super(Long.class);
+        }
+
+        // Digits go straight to the generator, no BigDecimal or String per amount
+        @Override
+        public void serialize(Long value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            char[] buffer = new char[Money.MAX_CHARS];
+            int start = Money.formatTo(value, buffer);
+            generator.writeNumber(buffer, start, buffer.length - start);
+        }
+    }
+
+    // Numbers and numeric strings, more than two decimals are rounded half up
+    class Deserializer extends StdDeserializer<Long> {
+
+        public Deserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return Money.of(parser.getDecimalValue());
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                try {
+                    return Money.of(new BigDecimal(parser.getText().trim()));
+                } catch (NumberFormatException e) {
+                    return (Long) context.handleWeirdStringValue(Long.class, parser.getText(), "not a decimal amount");
+                }
+            }
+            return (Long) context.handleUnexpectedToken(Long.class, parser);
+        }
+    }
+}
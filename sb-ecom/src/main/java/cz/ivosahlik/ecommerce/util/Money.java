@@ -0,0 +1,62 @@
+package cz.ivosahlik.ecommerce.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Amounts are plain longs in minor units (cents), so cart, order and revenue sums are exact integer arithmetic
+// without a boxed or decimal object per amount. Decimals only appear at the edges, in JSON and analytics.
+public final class Money {
+
+    // Digits after the decimal point, 100.50 is stored as 10050
+    public static final int SCALE = 2;
+    // Sign, 19 digits and the point
+    public static final int MAX_CHARS = 21;
+
+    private Money() {
+    }
+
+    public static long of(BigDecimal amount) {
+        try {
+            return amount.movePointRight(SCALE).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount out of range: " + amount, e);
+        }
+    }
+
+    // 10050 -> "100.50"
+    public static String format(long minorUnits) {
+        char[] buffer = new char[MAX_CHARS];
+        int start = formatTo(minorUnits, buffer);
+        return new String(buffer, start, buffer.length - start);
+    }
+
+    // Writes the decimal digits right-aligned into the buffer and returns where they start
+    public static int formatTo(long minorUnits, char[] buffer) {
+        int position = buffer.length;
+        // Counted down on the negative side, Long.MIN_VALUE has no positive counterpart
+        long rest = minorUnits < 0 ? minorUnits : -minorUnits;
+        for (int i = 0; i < SCALE; i++) {
+            buffer[--position] = (char) ('0' - rest % 10);
+            rest /= 10;
+        }
+        buffer[--position] = '.';
+        do {
+            buffer[--position] = (char) ('0' - rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        if (minorUnits < 0) {
+            buffer[--position] = '-';
+        }
+        return position;
+    }
+
+    // Price of a line, overflow fails instead of wrapping around
+    public static long times(long unitPrice, int quantity) {
+        return Math.multiplyExact(unitPrice, quantity);
+    }
+
+    // The discount is a percentage, rounded to whole minor units once, when the special price is set
+    public static long discounted(long price, double discountPercent) {
+        return price - Math.round(price * discountPercent / 100);
+    }
+}
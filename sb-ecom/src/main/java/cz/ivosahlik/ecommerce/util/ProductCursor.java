@@ -0,0 +1,65 @@
+package cz.ivosahlik.ecommerce.util;
+
+import cz.ivosahlik.ecommerce.exceptions.APIException;
+import cz.ivosahlik.ecommerce.payload.ProductDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+public record ProductCursor(String sortBy, boolean ascending, Comparable<?> lastValue, Long lastProductId) {
+
+    public static final String ID_FIELD = "productId";
+
+    // Every field listed here is backed by a composite (field, product_id) index on products
+    public static final Set<String> SORT_FIELDS = Set.of(ID_FIELD, "productName", "price", "specialPrice");
+
+    private static final String SEPARATOR = "|";
+
+    public static boolean supports(String sortBy) {
+        return SORT_FIELDS.contains(sortBy);
+    }
+
+    public static ProductCursor after(ProductDTO product, String sortBy, boolean ascending) {
+        Comparable<?> value = switch (sortBy) {
+            case "productName" -> product.getProductName();
+            case "price" -> product.getPrice();
+            case "specialPrice" -> product.getSpecialPrice();
+            default -> product.getProductId();
+        };
+        return new ProductCursor(sortBy, ascending, value, product.getProductId());
+    }
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + (ascending ? "asc" : "desc") + SEPARATOR
+                + lastProductId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token, String sortBy, boolean ascending) {
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = raw.split("\\" + SEPARATOR, 4);
+        } catch (IllegalArgumentException e) {
+            throw new APIException("Invalid cursor: " + token);
+        }
+        if (parts.length != 4) {
+            throw new APIException("Invalid cursor: " + token);
+        }
+        if (!parts[0].equals(sortBy) || parts[1].equals("asc") != ascending) {
+            throw new APIException("Cursor does not match the requested sort " + sortBy);
+        }
+        try {
+            Long lastProductId = Long.valueOf(parts[2]);
+            Comparable<?> value = switch (sortBy) {
+                case "productName" -> parts[3];
+                case "price", "specialPrice" -> Long.valueOf(parts[3]);
+                default -> lastProductId;
+            };
+            return new ProductCursor(sortBy, ascending, value, lastProductId);
+        } catch (NumberFormatException e) {
+            throw new APIException("Invalid cursor: " + token);
+        }
+    }
+}
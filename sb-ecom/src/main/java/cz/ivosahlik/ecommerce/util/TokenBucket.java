@@ -0,0 +1,45 @@
+package cz.ivosahlik.ecommerce.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket in its GCRA form: a single AtomicLong holds the time at which the bucket is full
+// again, taking a token moves it forward by one refill interval, a CAS retry replaces the lock.
+public final class TokenBucket {
+
+    private final long refillNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(int capacity, Duration refillInterval) {
+        this.refillNanos = refillInterval.toNanos();
+        this.burstNanos = refillNanos * capacity;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    // Zero when a token was taken, otherwise how long until the next one is available
+    public long tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + refillNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Tokens left right now, for rate limit headers
+    public int available() {
+        long debt = Math.max(0, fullAt.get() - System.nanoTime());
+        return (int) Math.max(0, (burstNanos - debt) / refillNanos);
+    }
+
+    public long nanosUntilFull() {
+        return Math.max(0, fullAt.get() - System.nanoTime());
+    }
+}
@@ -1,14 +1,20 @@
 package cz.ivosahlik.ecommerce.controller
 
+import cz.ivosahlik.ecommerce.cache.UserIdentityCache
+import cz.ivosahlik.ecommerce.exceptions.ErrorResponseWriter
 import cz.ivosahlik.ecommerce.model.User
 import cz.ivosahlik.ecommerce.payload.AddressDTO
 import cz.ivosahlik.ecommerce.security.jwt.JwtUtils
+import cz.ivosahlik.ecommerce.security.ratelimit.RateLimiter
+import cz.ivosahlik.ecommerce.security.services.TokenRevocationService
+import cz.ivosahlik.ecommerce.security.services.TokenVersionService
 import cz.ivosahlik.ecommerce.security.services.UserDetailsServiceImpl
 import cz.ivosahlik.ecommerce.service.AddressService
 import cz.ivosahlik.ecommerce.util.AuthUtil
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest
+import org.springframework.context.annotation.Import
 import org.springframework.http.MediaType
 import org.springframework.security.test.context.support.WithMockUser
 import org.springframework.test.context.ContextConfiguration
@@ -26,6 +32,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(controllers = AddressController)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(ErrorResponseWriter)
 @ContextConfiguration
 class AddressControllerSpec extends Specification {
 
@@ -44,6 +51,18 @@ class AddressControllerSpec extends Specification {
     @MockitoBean
     UserDetailsServiceImpl userDetailsService
 
+    @MockitoBean
+    TokenVersionService tokenVersionService
+
+    @MockitoBean
+    TokenRevocationService tokenRevocationService
+
+    @MockitoBean
+    RateLimiter rateLimiter
+
+    @MockitoBean
+    UserIdentityCache userIdentityCache
+
     User user
 
     def setup() {
@@ -1,13 +1,19 @@
 package cz.ivosahlik.ecommerce.controller
 
+import cz.ivosahlik.ecommerce.cache.UserIdentityCache
+import cz.ivosahlik.ecommerce.exceptions.ErrorResponseWriter
 import cz.ivosahlik.ecommerce.payload.AnalyticsResponse
 import cz.ivosahlik.ecommerce.security.jwt.JwtUtils
+import cz.ivosahlik.ecommerce.security.ratelimit.RateLimiter
+import cz.ivosahlik.ecommerce.security.services.TokenRevocationService
+import cz.ivosahlik.ecommerce.security.services.TokenVersionService
 import cz.ivosahlik.ecommerce.security.services.UserDetailsServiceImpl
 import cz.ivosahlik.ecommerce.service.AnalyticsService
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest
 import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.context.annotation.Import
 import org.springframework.security.test.context.support.WithMockUser
 import org.springframework.test.context.ContextConfiguration
 import org.springframework.test.context.bean.override.mockito.MockitoBean
@@ -22,6 +28,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(controllers = AnalyticsController)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(ErrorResponseWriter)
 @ContextConfiguration
 class AnalyticsControllerSpec extends Specification {
 
@@ -37,6 +44,18 @@ class AnalyticsControllerSpec extends Specification {
     @MockitoBean
     UserDetailsServiceImpl userDetailsService
 
+    @MockitoBean
+    TokenVersionService tokenVersionService
+
+    @MockitoBean
+    TokenRevocationService tokenRevocationService
+
+    @MockitoBean
+    RateLimiter rateLimiter
+
+    @MockitoBean
+    UserIdentityCache userIdentityCache
+
     @WithMockUser(roles = ["ADMIN"])
     def "get analytics returns 200 and analytics data"() {
         given:
@@ -0,0 +1,62 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import cz.ivosahlik.ecommerce.support.SignsIn
+import jakarta.servlet.http.Cookie
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+// Shares the test profile context and in-memory database with the other controller specs
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class AuthControllerSpec extends Specification implements SignsIn {
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Value('${spring.ecom.app.jwtCookieName}')
+    String jwtCookieName
+
+    def "token is rejected after signout even if the client keeps the cookie"() {
+        given:
+        Cookie token = signIn("user1", "password1")
+        mockMvc.perform(get("/api/users/addresses").cookie(token))
+                .andExpect(status().isOk())
+
+        when:
+        mockMvc.perform(post("/api/auth/signout").cookie(token))
+                .andExpect(status().isOk())
+
+        then:
+        mockMvc.perform(get("/api/users/addresses").cookie(token))
+                .andExpect(status().isUnauthorized())
+    }
+
+    def "signout revokes only the signed out token"() {
+        given:
+        Cookie first = signIn("user1", "password1")
+        Cookie second = signIn("user1", "password1")
+
+        when:
+        mockMvc.perform(post("/api/auth/signout").cookie(first))
+                .andExpect(status().isOk())
+
+        then:
+        mockMvc.perform(get("/api/users/addresses").cookie(second))
+                .andExpect(status().isOk())
+    }
+}
@@ -0,0 +1,138 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import cz.ivosahlik.ecommerce.support.SignsIn
+import groovy.json.JsonSlurper
+import jakarta.servlet.http.Cookie
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.MediaType
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+// Many threads on one cart, the H2 database is shared with the other SpringBootTest specs.
+// A request may give up with 409 after its retries, but none may be lost or leave the total off the lines.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class CartConcurrencySpec extends Specification implements SignsIn {
+
+    private static final int THREADS = 8
+    private static final int REQUESTS_PER_THREAD = 10
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Value('${spring.ecom.app.jwtCookieName}')
+    String jwtCookieName
+
+    Cookie buyer
+    List<Long> productIds
+
+    def setup() {
+        buyer = signUp()
+        productIds = createProducts(10, 4)
+    }
+
+    def "concurrent quantity increments on one cart lose no update"() {
+        given:
+        Long productId = productIds[0]
+        mockMvc.perform(post("/api/carts/products/$productId/quantity/1").cookie(buyer))
+                .andExpect(status().isCreated())
+
+        when:
+        List<Integer> statuses = hammer {
+            mockMvc.perform(put("/api/cart/products/$productId/quantity/add").cookie(buyer))
+                    .andReturn().response.status
+        }
+        def userCart = cart()
+        int applied = statuses.count { it == 200 }
+
+        then:
+        statuses.every { it in [200, 409] }
+        applied > 0
+        userCart.products[0].quantity == 1 + applied
+        userCart.totalPrice == 10.0 * (1 + applied)
+    }
+
+    def "concurrent cart syncs leave the total matching the lines"() {
+        when:
+        List<Integer> statuses = hammer { int thread, int request ->
+            String items = productIds.take(1 + (thread + request) % productIds.size())
+                    .collect { """{"productId":$it,"quantity":${1 + request % 3}}""" }
+                    .join(",")
+            mockMvc.perform(post("/api/cart/create").cookie(buyer)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[$items]"))
+                    .andReturn().response.status
+        }
+        def lines = cart().products
+        BigDecimal lineTotal = lines.sum { line -> (line.specialPrice as BigDecimal) * (line.quantity as int) }
+
+        then:
+        statuses.every { it in [201, 409] }
+        statuses.count { it == 201 } > 0
+        lines*.productId.unique().size() == lines.size()
+        cart().totalPrice == lineTotal
+    }
+
+    // Every thread starts at the same moment, returns the HTTP status of every request
+    private List<Integer> hammer(Closure<Integer> request) {
+        def pool = Executors.newFixedThreadPool(THREADS)
+        def start = new CountDownLatch(1)
+        try {
+            def futures = (0..<THREADS).collect { int thread ->
+                pool.submit({
+                    start.await()
+                    (0..<REQUESTS_PER_THREAD).collect { int i ->
+                        request.maximumNumberOfParameters == 2 ? request.call(thread, i) : request.call()
+                    }
+                } as Callable<List<Integer>>)
+            }
+            start.countDown()
+            futures.collectMany { it.get() }
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+    private Object cart() {
+        new JsonSlurper().parseText(mockMvc.perform(get("/api/carts/users/cart").cookie(buyer))
+                .andExpect(status().isOk())
+                .andReturn().response.contentAsString)
+    }
+
+    private List<Long> createProducts(int price, int count) {
+        Cookie admin = signIn("admin", "adminPass")
+        def category = json(mockMvc.perform(post("/api/admin/categories").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"categoryName":"Concurrency ${UUID.randomUUID().toString().take(8)}"}"""))
+                .andExpect(status().isCreated()))
+        (1..count).collect { int i ->
+            json(mockMvc.perform(post("/api/admin/categories/${category.categoryId}/product").cookie(admin)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("""{"productName":"Contended $i","description":"Contended product $i","quantity":1000,"price":${price * i},"discount":0}"""))
+                    .andExpect(status().isCreated())).productId as Long
+        }
+    }
+
+    private static Object json(def result) {
+        new JsonSlurper().parseText(result.andReturn().response.contentAsString)
+    }
+}
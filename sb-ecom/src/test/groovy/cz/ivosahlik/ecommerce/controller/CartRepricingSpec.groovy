@@ -0,0 +1,161 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.model.Cart
+import cz.ivosahlik.ecommerce.repositories.CartRepository
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import cz.ivosahlik.ecommerce.support.SignsIn
+import groovy.json.JsonSlurper
+import jakarta.servlet.http.Cookie
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.MediaType
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+// A product in more than two carts is repriced after commit, two carts per chunk, so a few buyers take
+// either path. The cart view shows the products' current prices, the stored line prices are read directly.
+@SpringBootTest(properties = [
+        "spring.ecom.app.cartRepriceAsyncThreshold=2",
+        "spring.ecom.app.cartRepriceChunkSize=2",
+        "spring.datasource.url=jdbc:h2:mem:repricing;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+])
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class CartRepricingSpec extends Specification implements SignsIn {
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Value('${spring.ecom.app.jwtCookieName}')
+    String jwtCookieName
+
+    @Autowired
+    CartRepository cartRepository
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    Cookie admin
+    Long repriced
+    Long unchanged
+
+    def setup() {
+        admin = signIn("admin", "adminPass")
+        def category = json(mockMvc.perform(post("/api/admin/categories").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"categoryName":"Repricing ${UUID.randomUUID().toString().take(8)}"}"""))
+                .andExpect(status().isCreated()))
+        repriced = createProduct(category.categoryId as Long, "Repriced", 10)
+        unchanged = createProduct(category.categoryId as Long, "Unchanged", 5)
+    }
+
+    def "a product in few carts has their lines and totals repriced before the edit returns"() {
+        given:
+        List<Cookie> buyers = (1..2).collect { int i -> buyerWith([(repriced): i + 1, (unchanged): 1]) }
+
+        when:
+        changePrice(repriced, 8)
+        List<Map> carts = buyers.collect { storedCart(it) }
+
+        then:
+        carts*.lines == [[(repriced): 800L, (unchanged): 500L]] * 2
+        carts*.total == [800L * 2 + 500L, 800L * 3 + 500L]
+    }
+
+    def "a product in many carts has their lines and totals repriced after commit, chunk by chunk"() {
+        given:
+        List<Cookie> buyers = (1..5).collect { int i -> buyerWith([(repriced): i, (unchanged): 2]) }
+
+        when:
+        changePrice(repriced, 8)
+        List<Map> carts = waitForPrice(buyers, 800L)
+
+        then:
+        carts*.lines == [[(repriced): 800L, (unchanged): 500L]] * 5
+        carts*.total == (1..5).collect { int i -> 800L * i + 500L * 2 }
+    }
+
+    def "edits racing the chunks leave every total matching its lines at the last price"() {
+        given:
+        List<Cookie> buyers = (1..5).collect { int i -> buyerWith([(repriced): i, (unchanged): 1]) }
+
+        when:
+        [9, 7, 6].each { changePrice(repriced, it) }
+        List<Map> carts = waitForPrice(buyers, 600L)
+
+        then:
+        carts.every { it.total == linesTotal(it) }
+        carts*.total == (1..5).collect { int i -> 600L * i + 500L }
+    }
+
+    private Long createProduct(Long categoryId, String name, int price) {
+        json(mockMvc.perform(post("/api/admin/categories/$categoryId/product").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"productName":"$name","description":"$name product","quantity":1000,"price":$price,"discount":0}"""))
+                .andExpect(status().isCreated())).productId as Long
+    }
+
+    private Cookie buyerWith(Map<Long, Integer> quantities) {
+        Cookie buyer = signUp()
+        String items = quantities.collect { productId, quantity -> """{"productId":$productId,"quantity":$quantity}""" }.join(",")
+        mockMvc.perform(post("/api/cart/create").cookie(buyer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[$items]"))
+                .andExpect(status().isCreated())
+        buyer
+    }
+
+    private void changePrice(Long productId, int specialPrice) {
+        mockMvc.perform(put("/api/admin/products/$productId").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"productName":"Repriced","description":"Repriced product","quantity":1000,"price":10,"discount":${100 - specialPrice * 10},"specialPrice":$specialPrice}"""))
+                .andExpect(status().isOk())
+    }
+
+    // Total, line prices and quantities by product id, as stored
+    private Map storedCart(Cookie buyer) {
+        Long cartId = json(mockMvc.perform(get("/api/carts/users/cart").cookie(buyer))
+                .andExpect(status().isOk())).cartId as Long
+        new TransactionTemplate(transactionManager).execute {
+            Cart cart = cartRepository.findById(cartId).orElseThrow()
+            [total     : cart.totalPrice,
+             lines     : cart.cartItems.collectEntries { [(it.product.productId): it.productPrice] },
+             quantities: cart.cartItems.collectEntries { [(it.product.productId): it.quantity] }]
+        }
+    }
+
+    // The cart row and its lines are two selects, a chunk may commit in between, so the total has to catch up
+    // too. A total that drifted off its lines never does and fails the feature after the deadline.
+    private List<Map> waitForPrice(List<Cookie> buyers, long linePrice) {
+        long deadline = System.nanoTime() + 10_000_000_000L
+        while (true) {
+            List<Map> carts = buyers.collect { storedCart(it) }
+            if (carts.every { it.lines[repriced] == linePrice && it.total == linesTotal(it) } || System.nanoTime() > deadline) {
+                return carts
+            }
+            Thread.sleep(20)
+        }
+    }
+
+    private static long linesTotal(Map cart) {
+        cart.lines.collect { productId, price -> price * cart.quantities[productId] }.sum() as long
+    }
+
+    private static Object json(def result) {
+        new JsonSlurper().parseText(result.andReturn().response.contentAsString)
+    }
+}
@@ -0,0 +1,173 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.model.Cart
+import cz.ivosahlik.ecommerce.repositories.CartRepository
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import cz.ivosahlik.ecommerce.support.SignsIn
+import groovy.json.JsonSlurper
+import jakarta.servlet.http.Cookie
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.MediaType
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+// POST /api/cart/create replaces the cart with the listed products, every feature with a new buyer
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class CartSyncSpec extends Specification implements SignsIn {
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Value('${spring.ecom.app.jwtCookieName}')
+    String jwtCookieName
+
+    @Autowired
+    CartRepository cartRepository
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    Cookie buyer
+    Long tenner
+    Long twenty
+    Long fifty
+    Long discounted
+
+    def setup() {
+        Cookie admin = signIn("admin", "adminPass")
+        def category = json(mockMvc.perform(post("/api/admin/categories").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"categoryName":"Sync ${UUID.randomUUID().toString().take(8)}"}"""))
+                .andExpect(status().isCreated()))
+        tenner = createProduct(admin, category.categoryId as Long, "Tenner", 10, 0)
+        twenty = createProduct(admin, category.categoryId as Long, "Twenty", 20, 0)
+        fifty = createProduct(admin, category.categoryId as Long, "Fifty", 50, 0)
+        discounted = createProduct(admin, category.categoryId as Long, "Discounted", 40, 25)
+        buyer = signUp()
+    }
+
+    def "a sync adds new lines, updates changed ones, keeps unchanged ones and removes the rest"() {
+        given:
+        sync([(tenner): 1, (twenty): 2, (fifty): 1])
+        Map<Long, Long> linesBefore = lineIds()
+
+        when:
+        MockHttpServletResponse response = sync([(twenty): 5, (fifty): 1, (discounted): 2])
+        Map<Long, Long> linesAfter = lineIds()
+
+        then:
+        response.status == 201
+        quantities() == [(twenty): 5, (fifty): 1, (discounted): 2]
+        cart().totalPrice == 20 * 5 + 50 + 30 * 2
+        linesAfter[twenty] == linesBefore[twenty]
+        linesAfter[fifty] == linesBefore[fifty]
+        linesAfter[discounted] != null
+        !linesAfter.containsKey(tenner)
+    }
+
+    def "a product listed more than once gets one line with the quantities added up"() {
+        when:
+        MockHttpServletResponse response = sync([[tenner, 1], [twenty, 2], [tenner, 3]])
+
+        then:
+        response.status == 201
+        quantities() == [(tenner): 4, (twenty): 2]
+        lineIds().size() == 2
+        cart().totalPrice == 10 * 4 + 20 * 2
+    }
+
+    def "the total is the sum of the special prices times the quantities"() {
+        when:
+        sync([(tenner): 3, (discounted): 1])
+        def userCart = cart()
+
+        then:
+        userCart.products.find { it.productId == discounted }.specialPrice == 30
+        userCart.totalPrice == userCart.products.sum { (it.specialPrice as BigDecimal) * (it.quantity as int) }
+        userCart.totalPrice == 10 * 3 + 30
+    }
+
+    def "an unknown product is not found and leaves the cart as it was"() {
+        given:
+        sync([(tenner): 2])
+
+        when:
+        MockHttpServletResponse response = sync([(twenty): 1, (Long.MAX_VALUE): 1])
+
+        then:
+        response.status == 404
+        response.contentAsString.contains("productId")
+        quantities() == [(tenner): 2]
+        cart().totalPrice == 20
+    }
+
+    def "an empty list empties the cart"() {
+        given:
+        sync([(tenner): 2, (twenty): 1])
+
+        when:
+        MockHttpServletResponse response = sync([:])
+
+        then:
+        response.status == 201
+        quantities() == [:]
+        cart().totalPrice == 0
+    }
+
+    private Long createProduct(Cookie admin, Long categoryId, String name, int price, int discount) {
+        json(mockMvc.perform(post("/api/admin/categories/$categoryId/product").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"productName":"$name","description":"$name product","quantity":1000,"price":$price,"discount":$discount}"""))
+                .andExpect(status().isCreated())).productId as Long
+    }
+
+    private MockHttpServletResponse sync(Map<Long, Integer> quantities) {
+        sync(quantities.collect { productId, quantity -> [productId, quantity] })
+    }
+
+    private MockHttpServletResponse sync(List<List> items) {
+        String body = items.collect { """{"productId":${it[0]},"quantity":${it[1]}}""" }.join(",")
+        mockMvc.perform(post("/api/cart/create").cookie(buyer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[$body]"))
+                .andReturn().response
+    }
+
+    private Object cart() {
+        json(mockMvc.perform(get("/api/carts/users/cart").cookie(buyer)).andExpect(status().isOk()))
+    }
+
+    private Map<Long, Integer> quantities() {
+        cart().products.collectEntries { [(it.productId as Long): it.quantity as Integer] }
+    }
+
+    // Line id by product id, a line that is only updated keeps its id
+    private Map<Long, Long> lineIds() {
+        Long cartId = cart().cartId as Long
+        new TransactionTemplate(transactionManager).execute {
+            Cart stored = cartRepository.findById(cartId).orElseThrow()
+            stored.cartItems.collectEntries { [(it.product.productId): it.cartItemId] }
+        }
+    }
+
+    private static Object json(def result) {
+        new JsonSlurper().parseText(result.andReturn().response.contentAsString)
+    }
+}
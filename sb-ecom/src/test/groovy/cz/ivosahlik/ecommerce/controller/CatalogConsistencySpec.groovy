@@ -0,0 +1,212 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.payload.ProductDTO
+import cz.ivosahlik.ecommerce.payload.ProductResponse
+import cz.ivosahlik.ecommerce.service.CategoryService
+import cz.ivosahlik.ecommerce.service.ProductService
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import cz.ivosahlik.ecommerce.support.SignsIn
+import groovy.json.JsonSlurper
+import jakarta.servlet.http.Cookie
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.MediaType
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+// Catalog reads that run while a write is still open must not leave the old rows cached once it commits.
+// The reads go through another thread, on the test thread they would join the open transaction.
+// The test profile turns the catalog cache off, this context has it on and its own database.
+@SpringBootTest(properties = [
+        "spring.ecom.app.catalogCacheMaxSize=100",
+        "spring.datasource.url=jdbc:h2:mem:catalog;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+])
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class CatalogConsistencySpec extends Specification implements SignsIn {
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Autowired
+    ProductService productService
+
+    @Autowired
+    CategoryService categoryService
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    @Value('${spring.ecom.app.jwtCookieName}')
+    String jwtCookieName
+
+    Cookie admin
+    String categoryName
+    Long categoryId
+    Long productId
+    String productName
+
+    def setup() {
+        admin = signIn("admin", "adminPass")
+        productName = "Consistent${UUID.randomUUID().toString().take(8)}"
+        categoryName = "Consistency ${UUID.randomUUID().toString().take(8)}"
+        categoryId = json(mockMvc.perform(post("/api/admin/categories").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"categoryName":"$categoryName"}"""))
+                .andExpect(status().isCreated())).categoryId as Long
+        productId = json(mockMvc.perform(post("/api/admin/categories/$categoryId/product").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"productName":"$productName","description":"Consistent product","quantity":100,"price":20,"discount":0}"""))
+                .andExpect(status().isCreated())).productId as Long
+    }
+
+    def "a caller changing a cached page does not change it for the next reader"() {
+        given:
+        def first = cachedPage()
+        String image = first.content[0].image
+
+        when:
+        first.content[0].image = "changed.png"
+        first.content[0].productName = "Changed"
+        first.content.clear()
+        def second = cachedPage()
+        second.content[0].price = 1
+        def third = cachedPage()
+        def served = json(mockMvc.perform(get("/api/public/products").param("category", categoryName))
+                .andExpect(status().isOk()))
+
+        then:
+        image == "http://localhost:8080/images/default.png"
+        [second, third].every { it.content*.productName == [productName] && it.content[0].image == image }
+        third.content[0].price == 2000
+        served.content*.image == [image]
+    }
+
+    def "a category page read during a product update is fresh after the commit"() {
+        given:
+        def before = categoryPage()
+
+        when:
+        def during = new TransactionTemplate(transactionManager).execute {
+            productService.updateProduct(productId,
+                    new ProductDTO(null, productName, null, "Consistent product", 100, 3000, 0.0, 3000))
+            readAside { categoryPage() }
+        }
+        def after = categoryPage()
+
+        then:
+        before.content[0].specialPrice == 20.00
+        during.content[0].specialPrice == 20.00
+        after.content[0].specialPrice == 30.00
+    }
+
+    def "a category page read during a category delete is gone after the commit"() {
+        given:
+        categoryPage()
+
+        when:
+        def during = new TransactionTemplate(transactionManager).execute {
+            categoryService.deleteCategory(categoryId)
+            readAside { categoryPage() }
+        }
+
+        then:
+        during.content*.productId == [productId]
+        mockMvc.perform(get("/api/public/categories/$categoryId/products"))
+                .andExpect(status().isNotFound())
+        mockMvc.perform(get("/api/public/products/keyword/$productName"))
+                .andExpect(status().isBadRequest())
+    }
+
+    def "a rolled back category delete keeps the products listed, searchable and suggested"() {
+        given:
+        categoryPage()
+
+        when:
+        new TransactionTemplate(transactionManager).executeWithoutResult { status ->
+            categoryService.deleteCategory(categoryId)
+            status.setRollbackOnly()
+        }
+        def page = categoryPage()
+        // The keyword search has always answered with 302 and the page in the body
+        def found = json(mockMvc.perform(get("/api/public/products/keyword/$productName"))
+                .andExpect(status().isFound()))
+        def suggested = json(mockMvc.perform(get("/api/public/products/suggest").param("prefix", productName))
+                .andExpect(status().isOk()))
+
+        then:
+        page.content*.productId == [productId]
+        found.content*.productId == [productId]
+        suggested*.text == [productName]
+    }
+
+    def "a product rename reaches keyword search and suggestions only once it commits"() {
+        given:
+        String newName = "Renamed${UUID.randomUUID().toString().take(8)}"
+        def renamed = new ProductDTO(null, newName, null, "Consistent product", 100, 2000, 0.0, 2000)
+
+        when:
+        new TransactionTemplate(transactionManager).executeWithoutResult { status ->
+            productService.updateProduct(productId, renamed)
+            status.setRollbackOnly()
+        }
+
+        then:
+        keywordSearch(productName) == 302
+        keywordSearch(newName) == 400
+        suggestions(productName) == [productName]
+        suggestions(newName) == []
+
+        when:
+        new TransactionTemplate(transactionManager).executeWithoutResult {
+            productService.updateProduct(productId, renamed)
+        }
+
+        then:
+        keywordSearch(productName) == 400
+        keywordSearch(newName) == 302
+        suggestions(productName) == []
+        suggestions(newName) == [newName]
+    }
+
+    private ProductResponse cachedPage() {
+        productService.getAllProducts(0, 10, "productId", "asc", null, categoryName, null)
+    }
+
+    private int keywordSearch(String keyword) {
+        mockMvc.perform(get("/api/public/products/keyword/$keyword")).andReturn().response.status
+    }
+
+    private List<String> suggestions(String prefix) {
+        json(mockMvc.perform(get("/api/public/products/suggest").param("prefix", prefix))
+                .andExpect(status().isOk()))*.text
+    }
+
+    private static Object readAside(Closure<Object> read) {
+        CompletableFuture.supplyAsync { read.call() }.get()
+    }
+
+    private Object categoryPage() {
+        json(mockMvc.perform(get("/api/public/categories/$categoryId/products"))
+                .andExpect(status().isOk()))
+    }
+
+    private static Object json(def result) {
+        new JsonSlurper().parseText(result.andReturn().response.contentAsString)
+    }
+}
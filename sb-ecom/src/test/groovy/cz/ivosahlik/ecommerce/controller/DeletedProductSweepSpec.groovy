@@ -0,0 +1,194 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.model.Cart
+import cz.ivosahlik.ecommerce.repositories.CartRepository
+import cz.ivosahlik.ecommerce.repositories.ProductRepository
+import cz.ivosahlik.ecommerce.service.impl.DeletedProductSweeper
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import cz.ivosahlik.ecommerce.support.SignsIn
+import groovy.json.JsonSlurper
+import jakarta.servlet.http.Cookie
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.MediaType
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+// The scheduled sweep only runs at startup here, two carts per batch. Most features tombstone products directly
+// and run the sweep themselves, DELETE would also kick one in the background.
+@SpringBootTest(properties = [
+        "spring.ecom.app.productSweepMs=3600000",
+        "spring.ecom.app.productSweepBatchSize=2",
+        "spring.datasource.url=jdbc:h2:mem:sweeper;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+])
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class DeletedProductSweepSpec extends Specification implements SignsIn {
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Value('${spring.ecom.app.jwtCookieName}')
+    String jwtCookieName
+
+    @Autowired
+    DeletedProductSweeper deletedProductSweeper
+
+    @Autowired
+    ProductRepository productRepository
+
+    @Autowired
+    CartRepository cartRepository
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    Cookie admin
+    Long deleted
+    Long kept
+
+    def setup() {
+        admin = signIn("admin", "adminPass")
+        def category = json(mockMvc.perform(post("/api/admin/categories").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"categoryName":"Sweep ${UUID.randomUUID().toString().take(8)}"}"""))
+                .andExpect(status().isCreated()))
+        deleted = createProduct(category.categoryId as Long, "Deleted", 10)
+        kept = createProduct(category.categoryId as Long, "Kept", 20)
+    }
+
+    def "a sweep takes a deleted product out of every cart, lowers the totals and deletes the product"() {
+        given:
+        List<Cookie> buyers = (1..3).collect { int i -> buyerWith([(deleted): i, (kept): 1]) }
+        tombstone(deleted)
+
+        when:
+        List<Map> before = buyers.collect { storedCart(it) }
+        deletedProductSweeper.sweep()
+        List<Map> after = buyers.collect { storedCart(it) }
+
+        then:
+        before*.total == (1..3).collect { int i -> 1000L * i + 2000L }
+        after*.lines == [[(kept): 1]] * 3
+        after*.total == [2000L] * 3
+        !productRepository.existsById(deleted)
+        productRepository.existsById(kept)
+    }
+
+    def "a deleted product that was ordered stays as a tombstone once swept out of the carts"() {
+        given:
+        Cookie customer = buyerWith([(deleted): 1])
+        checkout(customer).status == 201
+        Cookie holder = buyerWith([(deleted): 2, (kept): 1])
+        tombstone(deleted)
+
+        when:
+        deletedProductSweeper.sweep()
+
+        then:
+        storedCart(holder).lines == [(kept): 1]
+        storedCart(holder).total == 2000L
+        productRepository.findById(deleted).orElseThrow().deleted
+    }
+
+    def "checkout rejects a deleted product that is not swept out of the cart yet"() {
+        given:
+        Cookie buyer = buyerWith([(deleted): 1, (kept): 2])
+        tombstone(deleted)
+
+        when:
+        MockHttpServletResponse response = checkout(buyer)
+
+        then:
+        response.status == 400
+        response.contentAsString.contains("Product Deleted is no longer available")
+        storedCart(buyer).lines == [(deleted): 1, (kept): 2]
+        storedCart(buyer).total == 1000L + 2000L * 2
+    }
+
+    def "deleting a product kicks a sweep in the background"() {
+        given:
+        Cookie buyer = buyerWith([(deleted): 1, (kept): 1])
+
+        when:
+        mockMvc.perform(delete("/api/admin/products/$deleted").cookie(admin)).andExpect(status().isOk())
+
+        then:
+        waitUntil { !productRepository.existsById(deleted) }
+        storedCart(buyer).lines == [(kept): 1]
+        storedCart(buyer).total == 2000L
+    }
+
+    private Long createProduct(Long categoryId, String name, int price) {
+        json(mockMvc.perform(post("/api/admin/categories/$categoryId/product").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"productName":"$name","description":"$name product","quantity":1000,"price":$price,"discount":0}"""))
+                .andExpect(status().isCreated())).productId as Long
+    }
+
+    // What DELETE does to the product, without kicking a sweep
+    private void tombstone(Long productId) {
+        new TransactionTemplate(transactionManager).executeWithoutResult {
+            productRepository.findById(productId).orElseThrow().deleted = true
+        }
+    }
+
+    private Cookie buyerWith(Map<Long, Integer> quantities) {
+        Cookie buyer = signUp()
+        String items = quantities.collect { productId, quantity -> """{"productId":$productId,"quantity":$quantity}""" }.join(",")
+        mockMvc.perform(post("/api/cart/create").cookie(buyer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[$items]"))
+                .andExpect(status().isCreated())
+        buyer
+    }
+
+    private MockHttpServletResponse checkout(Cookie buyer) {
+        def address = json(mockMvc.perform(post("/api/addresses").cookie(buyer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content('{"street":"Main street","buildingName":"Building A","city":"Prague","state":"Bohemia","country":"Czechia","pincode":"110000"}'))
+                .andExpect(status().isCreated()))
+        mockMvc.perform(post("/api/order/users/payments/card").cookie(buyer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"addressId":${address.addressId},"pgName":"Stripe","pgPaymentId":"pi_1","pgStatus":"succeeded","pgResponseMessage":"ok"}"""))
+                .andReturn().response
+    }
+
+    // Total and quantities by product id, as stored
+    private Map storedCart(Cookie buyer) {
+        Long cartId = json(mockMvc.perform(get("/api/carts/users/cart").cookie(buyer))
+                .andExpect(status().isOk())).cartId as Long
+        new TransactionTemplate(transactionManager).execute {
+            Cart cart = cartRepository.findById(cartId).orElseThrow()
+            [total: cart.totalPrice,
+             lines: cart.cartItems.collectEntries { [(it.product.productId): it.quantity] }]
+        }
+    }
+
+    private static void waitUntil(Closure<Boolean> condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L
+        while (!condition.call()) {
+            assert System.nanoTime() < deadline
+            Thread.sleep(10)
+        }
+    }
+
+    private static Object json(def result) {
+        new JsonSlurper().parseText(result.andReturn().response.contentAsString)
+    }
+}
@@ -0,0 +1,92 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import cz.ivosahlik.ecommerce.support.SignsIn
+import groovy.json.JsonSlurper
+import jakarta.servlet.http.Cookie
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.MediaType
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+// Most products share a price, so the pages only line up if both paging modes break ties the same way
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class ProductPagingSpec extends Specification implements SignsIn {
+
+    private static final List<Integer> PRICES = [10, 20, 10, 5, 20, 10, 20, 10]
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Value('${spring.ecom.app.jwtCookieName}')
+    String jwtCookieName
+
+    String categoryName
+    Map<Long, Integer> pricesById
+
+    def setup() {
+        Cookie admin = signIn("admin", "adminPass")
+        categoryName = "Paging ${UUID.randomUUID().toString().take(8)}"
+        def category = json(mockMvc.perform(post("/api/admin/categories").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"categoryName":"$categoryName"}"""))
+                .andExpect(status().isCreated()))
+        pricesById = PRICES.withIndex().collectEntries { int price, int i ->
+            def product = json(mockMvc.perform(post("/api/admin/categories/${category.categoryId}/product").cookie(admin)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("""{"productName":"Paged $i","description":"Paged product $i","quantity":10,"price":$price,"discount":0}"""))
+                    .andExpect(status().isCreated()))
+            [(product.productId as Long): price]
+        }
+    }
+
+    def "cursor pages sorted by price #sortOrder neither skip nor repeat tied products"() {
+        when:
+        List<Long> paged = []
+        String after = null
+        int pages = 0
+        while (pages++ < PRICES.size()) {
+            def page = productPage(sortOrder, after)
+            paged.addAll(page.content*.productId.collect { it as Long })
+            after = page.nextCursor
+            if (after == null) {
+                break
+            }
+        }
+        def expected = pricesById.keySet().sort { a, b -> pricesById[a] <=> pricesById[b] ?: a <=> b }
+
+        then:
+        paged == (sortOrder == "asc" ? expected : expected.reverse())
+
+        where:
+        sortOrder << ["asc", "desc"]
+    }
+
+    private Object productPage(String sortOrder, String after) {
+        def request = get("/api/public/products")
+                .param("category", categoryName)
+                .param("sortBy", "price")
+                .param("sortOrder", sortOrder)
+                .param("pageSize", "3")
+        json(mockMvc.perform(after == null ? request : request.param("after", after))
+                .andExpect(status().isOk()))
+    }
+
+    private static Object json(def result) {
+        new JsonSlurper().parseText(result.andReturn().response.contentAsString)
+    }
+}
@@ -0,0 +1,106 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import cz.ivosahlik.ecommerce.support.SignsIn
+import groovy.json.JsonSlurper
+import jakarta.servlet.http.Cookie
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.MediaType
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class ProductSuggestionSpec extends Specification implements SignsIn {
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Value('${spring.ecom.app.jwtCookieName}')
+    String jwtCookieName
+
+    Cookie admin
+    String prefix
+    Long alphaId
+    Long betaId
+
+    def setup() {
+        admin = signIn("admin", "adminPass")
+        prefix = "Suggested${UUID.randomUUID().toString().take(8)}"
+        def category = json(mockMvc.perform(post("/api/admin/categories").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"categoryName":"$prefix Category"}"""))
+                .andExpect(status().isCreated()))
+        alphaId = addProduct(category.categoryId as Long, "$prefix Alpha")
+        betaId = addProduct(category.categoryId as Long, "$prefix Beta")
+    }
+
+    def "new products and their category are suggested by name and word start"() {
+        expect:
+        // A category weighs as much as it has products
+        suggestions(prefix) == ["$prefix Category", "$prefix Alpha", "$prefix Beta"]
+        suggestions("bet").contains("$prefix Beta".toString())
+        suggestions(prefix.toLowerCase() + " be") == ["$prefix Beta"]
+    }
+
+    def "ordered quantities move a product up once the order commits"() {
+        given:
+        Cookie buyer = signUp()
+        def address = json(mockMvc.perform(post("/api/addresses").cookie(buyer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content('{"street":"Main street","buildingName":"Building A","city":"Prague","state":"Bohemia","country":"Czechia","pincode":"110000"}'))
+                .andExpect(status().isCreated()))
+        mockMvc.perform(post("/api/cart/create").cookie(buyer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""[{"productId":$betaId,"quantity":3}]"""))
+                .andExpect(status().isCreated())
+
+        when:
+        mockMvc.perform(post("/api/order/users/payments/card").cookie(buyer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"addressId":${address.addressId},"pgName":"Stripe","pgPaymentId":"pi_1","pgStatus":"succeeded","pgResponseMessage":"ok"}"""))
+                .andExpect(status().isCreated())
+
+        then:
+        suggestions(prefix) == ["$prefix Beta", "$prefix Category", "$prefix Alpha"]
+    }
+
+    def "deleted products are no longer suggested"() {
+        when:
+        mockMvc.perform(delete("/api/admin/products/$alphaId").cookie(admin))
+                .andExpect(status().isOk())
+
+        then:
+        suggestions(prefix) == ["$prefix Beta", "$prefix Category"]
+    }
+
+    private Long addProduct(Long categoryId, String name) {
+        json(mockMvc.perform(post("/api/admin/categories/$categoryId/product").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"productName":"$name","description":"Suggested product","quantity":10,"price":20,"discount":0}"""))
+                .andExpect(status().isCreated())).productId as Long
+    }
+
+    private List<String> suggestions(String prefix) {
+        json(mockMvc.perform(get("/api/public/products/suggest").param("prefix", prefix))
+                .andExpect(status().isOk()))*.text
+    }
+
+    private static Object json(def result) {
+        new JsonSlurper().parseText(result.andReturn().response.contentAsString)
+    }
+}
@@ -0,0 +1,172 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.repositories.ProductRepository
+import cz.ivosahlik.ecommerce.support.QueryBudget
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import cz.ivosahlik.ecommerce.support.SignsIn
+import jakarta.servlet.http.Cookie
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.MediaType
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo
+import static org.hamcrest.Matchers.hasSize
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+// Budgets include the statements of the JWT filter and are sized with several rows per collection,
+// so an N+1 regression always goes over them. The seeded ids are fixed, so the spec has its own database.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:budget;MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class QueryBudgetSpec extends Specification implements SignsIn {
+
+    private static final int PRODUCTS = 6
+    private static final int ORDERS = 3
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Autowired
+    ProductRepository productRepository
+
+    @Value('${spring.ecom.app.jwtCookieName}')
+    String jwtCookieName
+
+    Cookie admin
+    Cookie seller
+    Cookie user
+
+    def setup() {
+        admin = signIn("admin", "adminPass")
+        seller = signIn("seller1", "password2")
+        user = signIn("user1", "password1")
+        if (productRepository.count() == 0) {
+            seedCatalogAndOrders()
+        }
+        fillCart()
+    }
+
+    @QueryBudget(select = 2)
+    def "product listing stays within its query budget"() {
+        expect:
+        mockMvc.perform(get("/api/public/products").param("pageSize", "$PRODUCTS"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.content', hasSize(PRODUCTS)))
+    }
+
+    @QueryBudget(select = 1)
+    def "cart view stays within its query budget"() {
+        expect:
+        mockMvc.perform(get("/api/carts/users/cart").cookie(user))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.products', hasSize(3)))
+    }
+
+    // Three cart items, each still costs an order item insert, a cart item delete and a stock update
+    @QueryBudget(select = 5, insert = 5, update = 5, delete = 3)
+    def "checkout stays within its query budget"() {
+        expect:
+        placeOrder()
+    }
+
+    @QueryBudget(select = 2)
+    def "seller orders stay within their query budget"() {
+        expect:
+        mockMvc.perform(get("/api/seller/orders").cookie(seller))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.content', hasSize(greaterThanOrEqualTo(ORDERS))))
+    }
+
+    // Keyset page, no OFFSET scan and no COUNT
+    @QueryBudget(select = 1)
+    def "seller directory cursor page stays within its query budget"() {
+        expect:
+        mockMvc.perform(get("/api/auth/sellers").param("after", "${Long.MAX_VALUE}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.content', hasSize(greaterThanOrEqualTo(1))))
+                .andExpect(jsonPath('$.lastPage').value(true))
+    }
+
+    // Against the three lines from setup, one quantity change, one removal and two new products,
+    // each kind of change is one statement or one JDBC batch
+    @QueryBudget(select = 2, insert = 1, update = 2, delete = 1)
+    def "cart sync stays within its query budget"() {
+        expect:
+        mockMvc.perform(post("/api/cart/create").cookie(user)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content('[{"productId":1,"quantity":2},{"productId":3,"quantity":1},{"productId":4,"quantity":1},{"productId":5,"quantity":3}]'))
+                .andExpect(status().isCreated())
+    }
+
+    // Carts holding the product are repriced set-based, not loaded one by one
+    @QueryBudget(select = 3, update = 3)
+    def "product price change stays within its query budget"() {
+        expect:
+        mockMvc.perform(put("/api/admin/products/1").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content('{"productName":"Product 1","description":"Description of product 1","quantity":100,"price":20,"discount":10,"specialPrice":18}'))
+                .andExpect(status().isOk())
+    }
+
+    // Both uniqueness checks in one read, roles come from RoleRegistry
+    @QueryBudget(select = 1, insert = 2)
+    def "signup stays within its query budget"() {
+        given:
+        String username = "buyer${UUID.randomUUID().toString().take(8)}"
+
+        expect:
+        mockMvc.perform(post("/api/auth/signup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"username":"$username","email":"$username@example.com","password":"password","role":["seller"]}"""))
+                .andExpect(status().isOk())
+    }
+
+
+    private void seedCatalogAndOrders() {
+        mockMvc.perform(post("/api/admin/categories").cookie(admin)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content('{"categoryName":"Electronics"}'))
+                .andExpect(status().isCreated())
+        (1..PRODUCTS).each { i ->
+            mockMvc.perform(post("/api/seller/categories/1/product").cookie(seller)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("""{"productName":"Product $i","description":"Description of product $i","quantity":100,"price":${10 * i},"discount":10}"""))
+                    .andExpect(status().isCreated())
+        }
+        mockMvc.perform(post("/api/addresses").cookie(user)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content('{"street":"Main street","buildingName":"Building A","city":"Prague","state":"Bohemia","country":"Czechia","pincode":"110000"}'))
+                .andExpect(status().isCreated())
+        ORDERS.times {
+            fillCart()
+            placeOrder()
+        }
+    }
+
+    private void fillCart() {
+        mockMvc.perform(post("/api/cart/create").cookie(user)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content('[{"productId":1,"quantity":1},{"productId":2,"quantity":2},{"productId":3,"quantity":1}]'))
+                .andExpect(status().isCreated())
+    }
+
+    private void placeOrder() {
+        mockMvc.perform(post("/api/order/users/payments/card").cookie(user)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content('{"addressId":1,"pgName":"Stripe","pgPaymentId":"pi_1","pgStatus":"succeeded","pgResponseMessage":"ok"}'))
+                .andExpect(status().isCreated())
+    }
+}
@@ -0,0 +1,111 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import cz.ivosahlik.ecommerce.support.SignsIn
+import jakarta.servlet.http.Cookie
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.HttpHeaders
+import org.springframework.http.MediaType
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder
+import org.springframework.test.web.servlet.request.RequestPostProcessor
+import spock.lang.Specification
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+
+// Small capacities from the configured route groups, every feature calls from its own addresses
+@SpringBootTest(properties = [
+        "spring.ecom.app.rateLimit.groups.catalog.capacity=3",
+        "spring.ecom.app.rateLimit.groups.payments.capacity=2",
+        "spring.datasource.url=jdbc:h2:mem:ratelimit;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+])
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class RateLimitSpec extends Specification implements SignsIn {
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Value('${spring.ecom.app.jwtCookieName}')
+    String jwtCookieName
+
+    def "anonymous catalog requests are limited per address and say how much is left"() {
+        when:
+        List<MockHttpServletResponse> responses = (1..4).collect { send(get("/api/public/categories"), "10.5.0.1") }
+        MockHttpServletResponse rejected = responses.last()
+
+        then:
+        responses*.status == [200, 200, 200, 429]
+        responses*.getHeader("RateLimit-Limit") == ["3"] * 4
+        responses*.getHeader("RateLimit-Remaining") == ["2", "1", "0", "0"]
+        responses.every { (it.getHeader("RateLimit-Reset") as long) in 1L..60L }
+        (rejected.getHeader(HttpHeaders.RETRY_AFTER) as long) in 1L..20L
+        responses.take(3).every { it.getHeader(HttpHeaders.RETRY_AFTER) == null }
+        rejected.contentAsString.contains("Rate limit exceeded")
+        send(get("/api/public/categories"), "10.5.0.2").status == 200
+    }
+
+    def "signed in users are limited by user id wherever they call from"() {
+        given:
+        Cookie first = signUp()
+        Cookie second = signUp()
+
+        when:
+        List<Integer> statuses = (1..3).collect { send(get("/api/public/categories").cookie(first), "10.6.0.$it").status }
+        int sameUser = send(get("/api/public/categories").cookie(first), "10.6.0.9").status
+        int otherUser = send(get("/api/public/categories").cookie(second), "10.6.0.1").status
+        int anonymous = send(get("/api/public/categories"), "10.6.0.1").status
+
+        then:
+        statuses == [200, 200, 200]
+        sameUser == 429
+        otherUser == 200
+        anonymous == 200
+    }
+
+    def "payments have their own smaller limit next to the catalog"() {
+        given:
+        Cookie buyer = signUp()
+
+        when:
+        List<MockHttpServletResponse> payments = (1..3).collect {
+            send(post("/api/order/users/payments/card").cookie(buyer)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content('{"addressId":999999,"pgName":"Stripe","pgPaymentId":"pi_1","pgStatus":"succeeded","pgResponseMessage":"ok"}'),
+                    "10.7.0.1")
+        }
+        MockHttpServletResponse catalog = send(get("/api/public/categories").cookie(buyer), "10.7.0.1")
+
+        then:
+        payments*.status.take(2).every { it != 429 }
+        payments*.getHeader("RateLimit-Limit") == ["2"] * 3
+        payments.last().status == 429
+        catalog.status == 200
+        catalog.getHeader("RateLimit-Limit") == "3"
+    }
+
+    def "routes outside every group carry no rate limit headers"() {
+        given:
+        Cookie buyer = signUp()
+
+        when:
+        List<MockHttpServletResponse> responses = (1..5).collect { send(get("/api/carts/users/cart").cookie(buyer), "10.8.0.1") }
+
+        then:
+        responses.every { it.status != 429 && it.getHeader("RateLimit-Limit") == null }
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequestBuilder request, String clientIp) {
+        mockMvc.perform(request.with({ it.remoteAddr = clientIp; it } as RequestPostProcessor)).andReturn().response
+    }
+}
@@ -0,0 +1,156 @@
+package cz.ivosahlik.ecommerce.controller
+
+import cz.ivosahlik.ecommerce.repositories.UserRepository
+import cz.ivosahlik.ecommerce.security.services.PasswordVerificationExecutor
+import cz.ivosahlik.ecommerce.support.QueryCountingConfig
+import io.micrometer.core.instrument.MeterRegistry
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.http.HttpHeaders
+import org.springframework.http.MediaType
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.request.RequestPostProcessor
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+// The test profile lifts the sign in limits, this context keeps them low and has one verification thread
+// with one queue slot. Every feature signs in from its own addresses, the per-IP buckets outlive a feature.
+@SpringBootTest(properties = [
+        "spring.ecom.app.loginAccountBurst=3",
+        "spring.ecom.app.loginIpBurst=5",
+        "spring.ecom.app.loginThreads=1",
+        "spring.ecom.app.loginQueueSize=1",
+        "spring.datasource.url=jdbc:h2:mem:signin;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+])
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(QueryCountingConfig)
+@ContextConfiguration
+class SignInProtectionSpec extends Specification {
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Autowired
+    PasswordVerificationExecutor passwordVerificationExecutor
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    @Autowired
+    UserRepository userRepository
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    def "an account is locked out after its burst of attempts from any address"() {
+        given:
+        String username = "victim${UUID.randomUUID().toString().take(8)}"
+
+        when:
+        List<Integer> statuses = (1..3).collect { signIn(username, "wrong", "10.1.0.$it").status }
+        MockHttpServletResponse locked = signIn(username.toUpperCase(), "wrong", "10.1.0.4")
+
+        then:
+        statuses == [401, 401, 401]
+        locked.status == 429
+        (locked.getHeader(HttpHeaders.RETRY_AFTER) as long) in 1L..60L
+        signIn("other${UUID.randomUUID().toString().take(8)}", "wrong", "10.1.0.5").status == 401
+    }
+
+    def "an address is locked out after its burst of attempts on any accounts"() {
+        when:
+        List<Integer> statuses = (1..5).collect { signIn("guess$it${UUID.randomUUID().toString().take(4)}", "wrong", "10.2.0.1").status }
+        MockHttpServletResponse locked = signIn("admin", "adminPass", "10.2.0.1")
+
+        then:
+        statuses == [401] * 5
+        locked.status == 429
+        (locked.getHeader(HttpHeaders.RETRY_AFTER) as long) in 1L..3L
+        signIn("admin", "adminPass", "10.2.0.2").status == 200
+    }
+
+    def "sign in is shed with 503 and Retry-After while every verification thread and queue slot is taken"() {
+        given:
+        String username = "busy${UUID.randomUUID().toString().take(8)}"
+        CountDownLatch release = new CountDownLatch(1)
+        // One at a time, a second task offered before the thread took the first one would find the queue full
+        List<CompletableFuture<Object>> busy = []
+        busy << CompletableFuture.supplyAsync { passwordVerificationExecutor.verify { release.await() } }
+        waitUntil { executorGauge("executor.active") == 1 && executorGauge("executor.queued") == 0 }
+        busy << CompletableFuture.supplyAsync { passwordVerificationExecutor.verify { release.await() } }
+        waitUntil { executorGauge("executor.queued") == 1 }
+
+        when:
+        MockHttpServletResponse shed = signIn(username, "wrong", "10.3.0.1")
+        release.countDown()
+        busy*.get()
+
+        then:
+        shed.status == 503
+        shed.getHeader(HttpHeaders.RETRY_AFTER) == "1"
+        signIn(username, "wrong", "10.3.0.1").status == 401
+    }
+
+    def "a hash made with a lower strength is replaced on the next sign in"() {
+        given:
+        String username = "legacy${UUID.randomUUID().toString().take(8)}"
+        mockMvc.perform(post("/api/auth/signup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"username":"$username","email":"$username@example.com","password":"password"}"""))
+                .andExpect(status().isOk())
+        String legacyHash = new BCryptPasswordEncoder(4).encode("password")
+        new TransactionTemplate(transactionManager).executeWithoutResult {
+            userRepository.updatePassword(username, legacyHash)
+        }
+
+        when:
+        int first = signIn(username, "password", "10.4.0.1").status
+        String rehashed = storedHash(username)
+        int second = signIn(username, "password", "10.4.0.1").status
+
+        then:
+        first == 200
+        second == 200
+        rehashed.startsWith('$2a$10$')
+        new BCryptPasswordEncoder().matches("password", rehashed)
+        storedHash(username) == rehashed
+    }
+
+    private MockHttpServletResponse signIn(String username, String password, String clientIp) {
+        mockMvc.perform(post("/api/auth/signin")
+                .with({ request -> request.remoteAddr = clientIp; request } as RequestPostProcessor)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"username":"$username","password":"$password"}"""))
+                .andReturn().response
+    }
+
+    private String storedHash(String username) {
+        userRepository.findByUserName(username).orElseThrow().password
+    }
+
+    private double executorGauge(String name) {
+        meterRegistry.get(name).tag("name", "passwordVerification").meter().measure().first().value
+    }
+
+    private static void waitUntil(Closure<Boolean> condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L
+        while (!condition.call()) {
+            assert System.nanoTime() < deadline
+            Thread.sleep(10)
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package cz.ivosahlik.ecommerce.search
+
+import cz.ivosahlik.ecommerce.repositories.ProductRepository
+import spock.lang.Specification
+
+class InMemoryProductSearchEngineSpec extends Specification {
+
+    InMemoryProductSearchEngine engine = new InMemoryProductSearchEngine(Mock(ProductRepository))
+
+    def setup() {
+        // Names tie in score, descriptions make some of them rank higher
+        (1L..8L).each { engine.index(new ProductDocument(it, "Desk $it", it % 3 == 0 ? "desk desk" : "Oak", null)) }
+    }
+
+    def "cursor pages continue where the previous page ended"() {
+        given:
+        List<Long> offsetOrder = engine.search("desk", null, 0, 8, null).productIds()
+
+        when:
+        List<SearchResult> pages = []
+        String after = null
+        while (pages.size() < 8) {
+            pages << engine.search("desk", null, 0, 3, after)
+            after = pages.last().nextCursor()
+            if (after == null) {
+                break
+            }
+        }
+
+        then:
+        pages*.productIds().flatten() == offsetOrder
+        pages.size() == 3
+        pages.first().totalHits() == 8
+        pages.tail()*.totalHits() == [null, null]
+    }
+
+    def "a cursor whose last hit was removed continues at the next lower score"() {
+        given:
+        SearchResult first = engine.search("desk", null, 0, 2, null)
+        List<Long> rest = engine.search("desk", null, 0, 8, null).productIds().drop(2)
+
+        when:
+        engine.remove(first.productIds().last())
+        SearchResult second = engine.search("desk", null, 0, 8, first.nextCursor())
+
+        then:
+        first.productIds() == [3L, 6L]
+        second.productIds() == rest
+        second.nextCursor() == null
+    }
+}
@@ -0,0 +1,97 @@
+package cz.ivosahlik.ecommerce.search
+
+import spock.lang.Specification
+
+class InvertedIndexSpec extends Specification {
+
+    InvertedIndex index = new InvertedIndex()
+
+    def "tokens are lower case letter and digit runs without diacritics"() {
+        expect:
+        TextAnalyzer.tokenize("Crème-Brûlée  SET, 2x") == ["creme", "brulee", "set", "2x"]
+        TextAnalyzer.tokenize(" -- ") == []
+        TextAnalyzer.tokenize(null) == []
+    }
+
+    def "name matches rank above description matches and short documents above long ones"() {
+        given:
+        index.add(new ProductDocument(1L, "Laptop", "Fast machine", "Computers"))
+        index.add(new ProductDocument(2L, "Bag", "Fits a laptop", "Accessories"))
+        index.add(new ProductDocument(3L, "Laptop stand", "Aluminium stand for a laptop", "Accessories"))
+
+        expect:
+        index.search("laptop", null).productIds() as List == [1L, 3L, 2L]
+    }
+
+    def "every query token has to match, the last one also as a prefix"() {
+        given:
+        index.add(new ProductDocument(1L, "Gaming Laptop", "Fast", "Computers"))
+        index.add(new ProductDocument(2L, "Office Laptop", "Quiet", "Computers"))
+        index.add(new ProductDocument(3L, "Gaming Mouse", "Wired", "Accessories"))
+
+        expect:
+        index.search(query, null).productIds() as List == productIds
+
+        where:
+        query           | productIds
+        "gaming lap"    | [1L]
+        "laptop gam"    | [1L]
+        "mou"           | [3L]
+        "gam office"    | []
+        "Gáming LAPTOP" | [1L]
+        "!!"            | []
+    }
+
+    def "category filters the ranked matches"() {
+        given:
+        index.add(new ProductDocument(1L, "Gaming Laptop", null, "Computers"))
+        index.add(new ProductDocument(2L, "Gaming Mouse", null, "Accessories"))
+
+        expect:
+        index.search("gaming", "Accessories").productIds() as List == [2L]
+        index.search("gaming", "Garden").productIds() as List == []
+    }
+
+    def "adding a product again replaces its terms"() {
+        given:
+        index.add(new ProductDocument(1L, "Gaming Laptop", "Fast", "Computers"))
+
+        when:
+        index.add(new ProductDocument(1L, "Office Desk", "Oak", "Furniture"))
+
+        then:
+        index.size() == 1
+        index.search("laptop", null).productIds() as List == []
+        index.search("desk", null).productIds() as List == [1L]
+        index.search("desk", "Computers").productIds() as List == []
+    }
+
+    def "removed products are no longer found"() {
+        given:
+        index.add(new ProductDocument(1L, "Gaming Laptop", null, null))
+        index.add(new ProductDocument(2L, "Office Laptop", null, null))
+
+        when:
+        index.remove(1L)
+        index.remove(99L)
+
+        then:
+        index.size() == 1
+        index.search("laptop", null).productIds() as List == [2L]
+    }
+
+    def "compaction after many removals keeps the remaining products searchable"() {
+        given:
+        (1L..1200L).each { index.add(new ProductDocument(it, "Chair $it", it % 2 == 0 ? "Oak" : "Pine", null)) }
+
+        when:
+        (1L..1100L).each { index.remove(it) }
+        index.add(new ProductDocument(5000L, "Oak chair", null, null))
+
+        then:
+        index.size() == 101
+        index.search("chair", null).size() == 101
+        index.search("oak", null).productIds() as List == [5000L] + (1102L..1200L).step(2)
+        index.search("1150", null).productIds() as List == [1150L]
+    }
+}
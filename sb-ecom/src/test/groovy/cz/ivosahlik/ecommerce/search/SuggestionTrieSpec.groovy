@@ -0,0 +1,89 @@
+package cz.ivosahlik.ecommerce.search
+
+import spock.lang.Specification
+
+import static cz.ivosahlik.ecommerce.search.SuggestionTrie.Type.CATEGORY
+import static cz.ivosahlik.ecommerce.search.SuggestionTrie.Type.PRODUCT
+
+class SuggestionTrieSpec extends Specification {
+
+    SuggestionTrie trie = new SuggestionTrie()
+
+    def setup() {
+        trie.add("Gaming Laptop", PRODUCT, 5)
+        trie.add("Office Laptop", PRODUCT, 2)
+        trie.add("Garden Hose", PRODUCT, 3)
+        trie.add("Garden", CATEGORY, 1)
+    }
+
+    def "prefix #prefix suggests #expected"() {
+        expect:
+        texts(prefix, 10) == expected
+
+        where:
+        prefix     | expected
+        "lap"      | ["Gaming Laptop", "Office Laptop"]
+        "ga"       | ["Gaming Laptop", "Garden Hose", "Garden"]
+        "Gáming l" | ["Gaming Laptop"]
+        "hose"     | ["Garden Hose"]
+        "laptops"  | []
+        "  "       | []
+    }
+
+    def "the heaviest suggestions come first and the limit cuts the rest"() {
+        expect:
+        texts("ga", 2) == ["Gaming Laptop", "Garden Hose"]
+        trie.top("ga", 0) == []
+    }
+
+    def "equal weights are ordered by text"() {
+        given:
+        trie.add("Laptop Bag", PRODUCT, 2)
+
+        expect:
+        texts("lap", 10) == ["Gaming Laptop", "Laptop Bag", "Office Laptop"]
+    }
+
+    def "added weight moves a suggestion up"() {
+        when:
+        trie.addWeight("Office Laptop", PRODUCT, 4)
+        trie.addWeight("Unknown", PRODUCT, 100)
+
+        then:
+        texts("lap", 10) == ["Office Laptop", "Gaming Laptop"]
+        trie.top("lap", 1).first().weight() == 6
+        trie.size() == 4
+    }
+
+    def "a suggestion added twice stays until both are removed"() {
+        given:
+        trie.add("Office Laptop", PRODUCT, 4)
+
+        when:
+        trie.remove("Office Laptop", PRODUCT, 2)
+
+        then:
+        trie.top("office", 10)*.weight() == [4L]
+
+        when:
+        trie.remove("Office Laptop", PRODUCT, 4)
+
+        then:
+        texts("office", 10) == []
+        texts("lap", 10) == ["Gaming Laptop"]
+        trie.size() == 3
+    }
+
+    def "products and categories with the same text are separate suggestions"() {
+        when:
+        trie.add("Garden", PRODUCT, 10)
+        trie.remove("Garden", CATEGORY, 1)
+
+        then:
+        trie.top("garden", 10).collect { [it.text(), it.type()] } == [["Garden", PRODUCT], ["Garden Hose", PRODUCT]]
+    }
+
+    private List<String> texts(String prefix, int limit) {
+        trie.top(prefix, limit)*.text()
+    }
+}
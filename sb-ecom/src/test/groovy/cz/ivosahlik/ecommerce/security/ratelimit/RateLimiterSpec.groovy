@@ -0,0 +1,71 @@
+package cz.ivosahlik.ecommerce.security.ratelimit
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.time.Duration
+
+class RateLimiterSpec extends Specification {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+
+    RateLimiter rateLimiter = limiter(true, [
+            catalog : new RateLimitProperties.Group(["/api/public/**"], 3, Duration.ofMinutes(1)),
+            payments: new RateLimitProperties.Group(["/api/order/stripe-client-secret", "/api/order/users/payments/**"], 1, Duration.ofMinutes(1))
+    ])
+
+    def "a client gets the capacity of a group per period, then a retry after one refill"() {
+        when:
+        List<RateLimiter.Decision> decisions = (1..4).collect { rateLimiter.tryAcquire("/api/public/products", "ip:10.0.0.1") }
+
+        then:
+        decisions*.allowed() == [true, true, true, false]
+        decisions*.limit() == [3] * 4
+        decisions*.remaining() == [2, 1, 0, 0]
+        decisions.every { it.resetSeconds() in 1L..60L }
+        decisions[3].retryAfterSeconds() in 1L..20L
+        rejected("catalog") == 1
+    }
+
+    def "each group has its own limit and its own bucket"() {
+        when:
+        List<Boolean> payments = (1..2).collect { rateLimiter.tryAcquire("/api/order/users/payments/card", "user:1").allowed() }
+        boolean secret = rateLimiter.tryAcquire("/api/order/stripe-client-secret", "user:1").allowed()
+        boolean catalog = rateLimiter.tryAcquire("/api/public/categories", "user:1").allowed()
+
+        then:
+        payments == [true, false]
+        !secret
+        catalog
+    }
+
+    def "clients are limited separately"() {
+        given:
+        3.times { rateLimiter.tryAcquire("/api/public/products", "ip:10.0.0.1") }
+
+        expect:
+        !rateLimiter.tryAcquire("/api/public/products", "ip:10.0.0.1").allowed()
+        rateLimiter.tryAcquire("/api/public/products", "ip:10.0.0.2").allowed()
+        rateLimiter.tryAcquire("/api/public/products", "user:7").allowed()
+    }
+
+    def "paths outside every group and a disabled limiter are not limited"() {
+        given:
+        RateLimiter disabled = limiter(false, [
+                catalog: new RateLimitProperties.Group(["/api/public/**"], 1, Duration.ofMinutes(1))
+        ])
+
+        expect:
+        rateLimiter.tryAcquire("/api/auth/signin", "ip:10.0.0.1") == null
+        rateLimiter.tryAcquire("/api/order/users/address", "ip:10.0.0.1") == null
+        (1..3).every { disabled.tryAcquire("/api/public/products", "ip:10.0.0.1") == null }
+    }
+
+    private RateLimiter limiter(boolean enabled, Map<String, RateLimitProperties.Group> groups) {
+        new RateLimiter(new RateLimitProperties(enabled, Duration.ofMinutes(10), 1000, groups), meterRegistry)
+    }
+
+    private double rejected(String group) {
+        meterRegistry.get("http.ratelimit.requests").tag("group", group).tag("outcome", "rejected").counter().count()
+    }
+}
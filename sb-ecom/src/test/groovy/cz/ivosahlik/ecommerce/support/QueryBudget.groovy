@@ -0,0 +1,20 @@
+package cz.ivosahlik.ecommerce.support
+
+import org.spockframework.runtime.extension.ExtensionAnnotation
+
+import java.lang.annotation.ElementType
+import java.lang.annotation.Retention
+import java.lang.annotation.RetentionPolicy
+import java.lang.annotation.Target
+
+// Fails the feature method when it issues more SQL statements than allowed, -1 leaves a statement type unchecked.
+// Only statements run on the test thread are counted, so setup() and background listeners do not use the budget.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@ExtensionAnnotation(QueryBudgetExtension)
+@interface QueryBudget {
+    int select() default -1
+    int insert() default -1
+    int update() default -1
+    int delete() default -1
+}
@@ -0,0 +1,35 @@
+package cz.ivosahlik.ecommerce.support
+
+import net.ttddyy.dsproxy.QueryType
+import org.spockframework.runtime.extension.IAnnotationDrivenExtension
+import org.spockframework.runtime.model.FeatureInfo
+
+class QueryBudgetExtension implements IAnnotationDrivenExtension<QueryBudget> {
+
+    @Override
+    void visitFeatureAnnotation(QueryBudget budget, FeatureInfo feature) {
+        feature.featureMethod.addInterceptor { invocation ->
+            QueryRecorder.reset()
+            invocation.proceed()
+            check(budget, QueryRecorder.statements())
+        }
+    }
+
+    private static void check(QueryBudget budget, List<RecordedStatement> statements) {
+        Map<QueryType, Integer> limits = [
+                (QueryType.SELECT): budget.select(),
+                (QueryType.INSERT): budget.insert(),
+                (QueryType.UPDATE): budget.update(),
+                (QueryType.DELETE): budget.delete()
+        ]
+        List<String> exceeded = limits.findAll { type, limit ->
+            limit >= 0 && statements.count { it.type() == type } > limit
+        }.collect { type, limit ->
+            "${type.name().toLowerCase()} ${statements.count { it.type() == type }} > $limit".toString()
+        }
+        if (exceeded) {
+            String issued = statements.withIndex().collect { statement, i -> "  ${i + 1}. ${statement.sql()}" }.join("\n")
+            throw new AssertionError("Query budget exceeded (${exceeded.join(', ')}), statements issued:\n$issued".toString())
+        }
+    }
+}
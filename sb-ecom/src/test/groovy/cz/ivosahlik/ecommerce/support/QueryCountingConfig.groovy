@@ -0,0 +1,24 @@
+package cz.ivosahlik.ecommerce.support
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder
+import org.springframework.beans.factory.config.BeanPostProcessor
+import org.springframework.boot.test.context.TestConfiguration
+import org.springframework.context.annotation.Bean
+
+import javax.sql.DataSource
+
+@TestConfiguration
+class QueryCountingConfig {
+
+    @Bean
+    static BeanPostProcessor queryCountingDataSource() {
+        new BeanPostProcessor() {
+            @Override
+            Object postProcessAfterInitialization(Object bean, String beanName) {
+                bean instanceof DataSource
+                        ? ProxyDataSourceBuilder.create(bean).name(beanName).listener(new QueryRecorder()).build()
+                        : bean
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package cz.ivosahlik.ecommerce.support
+
+import net.ttddyy.dsproxy.ExecutionInfo
+import net.ttddyy.dsproxy.QueryInfo
+import net.ttddyy.dsproxy.listener.QueryExecutionListener
+import net.ttddyy.dsproxy.listener.QueryUtils
+
+// Per thread, MockMvc runs the whole request on the calling thread
+class QueryRecorder implements QueryExecutionListener {
+
+    private static final ThreadLocal<List<RecordedStatement>> STATEMENTS = ThreadLocal.withInitial { [] }
+
+    static void reset() {
+        STATEMENTS.get().clear()
+    }
+
+    static List<RecordedStatement> statements() {
+        List.copyOf(STATEMENTS.get())
+    }
+
+    @Override
+    void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    // A JDBC batch counts once, it is a single round trip
+    @Override
+    void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        queryInfoList.each { STATEMENTS.get() << new RecordedStatement(QueryUtils.getQueryType(it.query), it.query) }
+    }
+}
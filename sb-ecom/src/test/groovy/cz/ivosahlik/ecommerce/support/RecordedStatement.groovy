@@ -0,0 +1,5 @@
+package cz.ivosahlik.ecommerce.support
+
+import net.ttddyy.dsproxy.QueryType
+
+record RecordedStatement(QueryType type, String sql) {}
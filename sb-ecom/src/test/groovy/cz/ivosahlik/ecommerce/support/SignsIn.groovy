@@ -0,0 +1,34 @@
+package cz.ivosahlik.ecommerce.support
+
+import jakarta.servlet.http.Cookie
+import org.springframework.http.MediaType
+import org.springframework.test.web.servlet.MockMvc
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+// Signs in through the auth endpoint, the spec provides its MockMvc and the configured JWT cookie name
+trait SignsIn {
+
+    abstract MockMvc getMockMvc()
+
+    abstract String getJwtCookieName()
+
+    Cookie signIn(String username, String password) {
+        mockMvc.perform(post("/api/auth/signin")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"username":"$username","password":"$password"}"""))
+                .andExpect(status().isOk())
+                .andReturn().response.getCookie(jwtCookieName)
+    }
+
+    // A new user, so the spec has a cart and orders of its own
+    Cookie signUp() {
+        String username = "user${UUID.randomUUID().toString().take(8)}"
+        mockMvc.perform(post("/api/auth/signup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""{"username":"$username","email":"$username@example.com","password":"password"}"""))
+                .andExpect(status().isOk())
+        signIn(username, "password")
+    }
+}
@@ -0,0 +1,91 @@
+package cz.ivosahlik.ecommerce.util
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import cz.ivosahlik.ecommerce.payload.CartDTO
+import cz.ivosahlik.ecommerce.payload.ProductDTO
+import spock.lang.Specification
+
+class MoneySpec extends Specification {
+
+    ObjectMapper objectMapper = new ObjectMapper()
+
+    def "formats #minorUnits as #text"() {
+        expect:
+        Money.format(minorUnits) == text
+
+        where:
+        minorUnits     | text
+        0              | "0.00"
+        5              | "0.05"
+        10050          | "100.50"
+        -199           | "-1.99"
+        Long.MAX_VALUE | "92233720368547758.07"
+        Long.MIN_VALUE | "-92233720368547758.08"
+    }
+
+    def "parses #amount into #minorUnits minor units"() {
+        expect:
+        Money.of(new BigDecimal(amount)) == minorUnits
+
+        where:
+        amount   | minorUnits
+        "0"      | 0
+        "19.99"  | 1999
+        "100.5"  | 10050
+        "0.005"  | 1
+        "-0.015" | -2
+    }
+
+    def "discounted prices are whole minor units"() {
+        expect:
+        Money.discounted(price, discount) == specialPrice
+
+        where:
+        price | discount | specialPrice
+        10000 | 10.0     | 9000
+        1999  | 15.0     | 1699
+        333   | 33.3     | 222
+        1000  | 0.0      | 1000
+    }
+
+    def "adding up amounts is exact where doubles drift"() {
+        given:
+        double doubles = 0
+        long minorUnits = 0
+
+        when:
+        10.times {
+            doubles += 0.1d
+            minorUnits += Money.of(new BigDecimal("0.1"))
+        }
+
+        then:
+        doubles != 1.0d
+        minorUnits == 100
+    }
+
+    def "amounts travel as decimal numbers in JSON"() {
+        given:
+        def cart = new CartDTO(1L, 10050, [new ProductDTO(2L, "Novel", null, null, 1, 2000, 0.0, 1999)])
+
+        when:
+        String json = objectMapper.writeValueAsString(cart)
+
+        then:
+        json == '{"cartId":1,"totalPrice":100.50,"products":[{"productId":2,"productName":"Novel","image":null,' +
+                '"description":null,"quantity":1,"price":20.00,"discount":0.0,"specialPrice":19.99}]}'
+        objectMapper.readValue(json, CartDTO) == cart
+    }
+
+    def "reads integer, decimal and string amounts"() {
+        expect:
+        objectMapper.readValue("""{"price":$price}""", ProductDTO).price == minorUnits
+
+        where:
+        price     | minorUnits
+        "20"      | 2000
+        "19.99"   | 1999
+        '"19.99"' | 1999
+        "0.001"   | 0
+    }
+}
@@ -0,0 +1,90 @@
+package cz.ivosahlik.ecommerce.util
+
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+class TokenBucketSpec extends Specification {
+
+    private static final Duration REFILL = Duration.ofMillis(200)
+
+    TokenBucket bucket = new TokenBucket(3, REFILL)
+
+    def "a full bucket allows a burst of its capacity and then waits at most one refill"() {
+        when:
+        List<Long> waits = (1..4).collect { bucket.tryAcquire() }
+
+        then:
+        waits.take(3) == [0L, 0L, 0L]
+        waits[3] > 0
+        waits[3] <= REFILL.toNanos()
+        bucket.available() == 0
+    }
+
+    def "a rejected attempt does not use up a token"() {
+        given:
+        3.times { bucket.tryAcquire() }
+
+        when:
+        long first = bucket.tryAcquire()
+        long second = bucket.tryAcquire()
+
+        then:
+        second <= first
+        second > REFILL.toNanos() / 2
+    }
+
+    def "one token comes back per refill interval"() {
+        given:
+        3.times { bucket.tryAcquire() }
+        long wait = bucket.tryAcquire()
+
+        when:
+        Thread.sleep(Duration.ofNanos(wait).plusMillis(20))
+        long afterOneRefill = bucket.tryAcquire()
+        long right = bucket.tryAcquire()
+
+        then:
+        afterOneRefill == 0
+        right > 0
+    }
+
+    def "an idle bucket fills up to its capacity and no further"() {
+        given:
+        3.times { bucket.tryAcquire() }
+
+        when:
+        Thread.sleep(REFILL.multipliedBy(5))
+
+        then:
+        bucket.nanosUntilFull() == 0
+        bucket.available() == 3
+        (1..4).collect { bucket.tryAcquire() }.count { it == 0 } == 3
+    }
+
+    def "concurrent callers never take more tokens than the bucket holds"() {
+        given:
+        TokenBucket slow = new TokenBucket(50, Duration.ofMinutes(1))
+        CountDownLatch start = new CountDownLatch(1)
+        ExecutorService pool = Executors.newFixedThreadPool(8)
+
+        when:
+        List<Future<Integer>> callers = (1..8).collect {
+            pool.submit({
+                start.await()
+                (1..20).count { slow.tryAcquire() == 0 } as Integer
+            } as Callable<Integer>)
+        }
+        start.countDown()
+        int taken = callers*.get().sum() as int
+        pool.shutdown()
+
+        then:
+        taken == 50
+    }
+}
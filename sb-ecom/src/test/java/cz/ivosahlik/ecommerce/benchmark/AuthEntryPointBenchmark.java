@@ -0,0 +1,149 @@
+package cz.ivosahlik.ecommerce.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.ivosahlik.ecommerce.exceptions.ErrorResponseWriter;
+import cz.ivosahlik.ecommerce.security.jwt.AuthEntryPointJwt;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.core.AuthenticationException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The 401 body written for every rejected request. The legacy benchmark replays the old AuthEntryPointJwt,
+// which built a new ObjectMapper and a HashMap per response. Run with -prof gc to compare allocation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthEntryPointBenchmark {
+
+    private final ObjectMapper applicationMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final AuthEntryPointJwt entryPoint = new AuthEntryPointJwt(new ErrorResponseWriter(applicationMapper));
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/carts/users/cart");
+
+    // Discards the body, so the benchmark measures rendering and not MockHttpServletResponse bookkeeping
+    private final DiscardingResponse response = new DiscardingResponse();
+
+    private final AuthenticationException exception =
+            new InsufficientAuthenticationException("Full authentication is required to access this resource");
+
+    {
+        request.setServletPath("/api/carts/users/cart");
+    }
+
+    @Benchmark
+    public long legacyNewMapperPerResponse() throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+
+        final Map<String, Object> body = new HashMap<>();
+        body.put("status", HttpServletResponse.SC_UNAUTHORIZED);
+        body.put("error", "Unauthorized");
+        body.put("message", exception.getMessage());
+        body.put("path", request.getServletPath());
+
+        final ObjectMapper mapper = new ObjectMapper();
+        mapper.writeValue(response.getOutputStream(), body);
+        return response.written;
+    }
+
+    @Benchmark
+    public long sharedMapperWithMap() throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+
+        final Map<String, Object> body = new HashMap<>();
+        body.put("status", HttpServletResponse.SC_UNAUTHORIZED);
+        body.put("error", "Unauthorized");
+        body.put("message", exception.getMessage());
+        body.put("path", request.getServletPath());
+
+        applicationMapper.writeValue(response.getOutputStream(), body);
+        return response.written;
+    }
+
+    @Benchmark
+    public long errorResponseWriter() throws Exception {
+        entryPoint.commence(request, response, exception);
+        return response.written;
+    }
+
+    private static final class DiscardingResponse extends HttpServletResponseWrapper {
+
+        private long written;
+
+        private final ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                written++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written += len;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+
+        DiscardingResponse() {
+            super(new MockHttpServletResponse());
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+
+        @Override
+        public void setStatus(int sc) {
+        }
+
+        @Override
+        public void setContentType(String type) {
+        }
+
+        @Override
+        public void setContentLength(int len) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AuthEntryPointBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
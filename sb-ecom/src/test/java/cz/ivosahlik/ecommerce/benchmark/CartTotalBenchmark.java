@@ -0,0 +1,81 @@
+package cz.ivosahlik.ecommerce.benchmark;
+
+import cz.ivosahlik.ecommerce.model.Cart;
+import cz.ivosahlik.ecommerce.model.CartItem;
+import cz.ivosahlik.ecommerce.model.Product;
+import cz.ivosahlik.ecommerce.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// The two ways CartServiceImpl keeps Cart.totalPrice: summing all items when the cart is rebuilt,
+// and adjusting the running total item by item when prices change. Amounts are minor units, both are
+// integer loops without allocation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartTotalBenchmark {
+
+    @Param({"10", "100"})
+    private int items;
+
+    private Cart cart;
+
+    @Setup
+    public void setUp() {
+        cart = new Cart();
+        long total = 0;
+        for (int i = 0; i < items; i++) {
+            Product product = new Product();
+            product.setProductId((long) i);
+            product.setPrice(1_999 + i * 100L);
+            product.setDiscount(15.0);
+            product.setSpecialPrice(Money.discounted(product.getPrice(), product.getDiscount()));
+            CartItem cartItem = new CartItem(null, cart, product, 1 + i % 3, product.getDiscount(), product.getSpecialPrice(), null);
+            cart.getCartItems().add(cartItem);
+            total += Money.times(cartItem.getProductPrice(), cartItem.getQuantity());
+        }
+        cart.setTotalPrice(total);
+    }
+
+    @Benchmark
+    public long recomputeTotal() {
+        long totalPrice = 0;
+        for (CartItem cartItem : cart.getCartItems()) {
+            totalPrice += Money.times(cartItem.getProduct().getSpecialPrice(), cartItem.getQuantity());
+        }
+        return totalPrice;
+    }
+
+    @Benchmark
+    public long adjustRunningTotal() {
+        long totalPrice = cart.getTotalPrice();
+        for (CartItem cartItem : cart.getCartItems()) {
+            long cartPrice = totalPrice - Money.times(cartItem.getProductPrice(), cartItem.getQuantity());
+            totalPrice = cartPrice + Money.times(cartItem.getProduct().getSpecialPrice(), cartItem.getQuantity());
+        }
+        return totalPrice;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CartTotalBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
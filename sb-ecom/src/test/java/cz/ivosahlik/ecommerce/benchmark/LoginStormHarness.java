@@ -0,0 +1,105 @@
+package cz.ivosahlik.ecommerce.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Catalog latency with and without a concurrent sign in storm, against a running server:
+//   java -cp target/test-classes cz.ivosahlik.ecommerce.benchmark.LoginStormHarness [baseUrl] [seconds] [signinsPerSecond]
+// The storm sends wrong passwords at a fixed rate whatever the responses are, clients looping as fast as they
+// get answers would measure the request flood instead, that saturates a small box on any endpoint. It comes
+// from one address, start the server with a high LOGIN_IP_BURST to load the BCrypt pool instead of being
+// stopped by the per-IP limit, and with RATE_LIMIT_ENABLED=false so the catalog is not answered with 429s.
+public class LoginStormHarness {
+
+    private static final int CATALOG_CLIENTS = 8;
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+        int signinsPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        report("catalog only", run(client, baseUrl, seconds, 0));
+        report("catalog during login storm", run(client, baseUrl, seconds, signinsPerSecond));
+    }
+
+    private record Result(List<Long> catalogNanos, Map<Integer, LongAdder> catalogStatuses,
+                          Map<Integer, LongAdder> signinStatuses) {
+    }
+
+    private static Result run(HttpClient client, String baseUrl, int seconds, int signinsPerSecond) throws Exception {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        Map<Integer, LongAdder> catalogStatuses = new ConcurrentHashMap<>();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong attempts = new AtomicLong();
+        HttpRequest catalog = HttpRequest.newBuilder(URI.create(baseUrl + "/api/public/products?pageSize=10")).GET().build();
+
+        ScheduledExecutorService storm = Executors.newSingleThreadScheduledExecutor();
+        if (signinsPerSecond > 0) {
+            storm.scheduleAtFixedRate(() -> {
+                String body = "{\"username\":\"storm" + attempts.incrementAndGet() + "\",\"password\":\"wrong\"}";
+                HttpRequest signin = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/signin"))
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofSeconds(30))
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+                client.sendAsync(signin, HttpResponse.BodyHandlers.discarding()).whenComplete((response, e) ->
+                        statuses.computeIfAbsent(e == null ? response.statusCode() : -1, s -> new LongAdder()).increment());
+            }, 0, TimeUnit.SECONDS.toMicros(1) / signinsPerSecond, TimeUnit.MICROSECONDS);
+        }
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CATALOG_CLIENTS; i++) {
+                threads.submit(() -> {
+                    while (running.get()) {
+                        long start = System.nanoTime();
+                        int status = client.send(catalog, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        latencies.add(System.nanoTime() - start);
+                        catalogStatuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                    }
+                    return null;
+                });
+            }
+            Thread.sleep(Duration.ofSeconds(seconds));
+            running.set(false);
+        } finally {
+            storm.shutdownNow();
+        }
+        return new Result(latencies, catalogStatuses, statuses);
+    }
+
+    private static void report(String label, Result result) {
+        List<Long> sorted = new ArrayList<>(result.catalogNanos());
+        Collections.sort(sorted);
+        System.out.printf("%-28s catalog=%s p50=%.1fms p99=%.1fms max=%.1fms signin=%s%n", label,
+                result.catalogStatuses(), percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0),
+                result.signinStatuses());
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+}
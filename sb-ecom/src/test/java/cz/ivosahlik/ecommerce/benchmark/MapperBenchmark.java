@@ -0,0 +1,148 @@
+package cz.ivosahlik.ecommerce.benchmark;
+
+import cz.ivosahlik.ecommerce.mapper.CartMapper;
+import cz.ivosahlik.ecommerce.mapper.CartMapperImpl;
+import cz.ivosahlik.ecommerce.mapper.OrderMapper;
+import cz.ivosahlik.ecommerce.mapper.OrderMapperImpl;
+import cz.ivosahlik.ecommerce.mapper.ProductMapper;
+import cz.ivosahlik.ecommerce.mapper.ProductMapperImpl;
+import cz.ivosahlik.ecommerce.model.Address;
+import cz.ivosahlik.ecommerce.model.Cart;
+import cz.ivosahlik.ecommerce.model.CartItem;
+import cz.ivosahlik.ecommerce.model.Category;
+import cz.ivosahlik.ecommerce.model.Order;
+import cz.ivosahlik.ecommerce.model.OrderItem;
+import cz.ivosahlik.ecommerce.model.Payment;
+import cz.ivosahlik.ecommerce.model.Product;
+import cz.ivosahlik.ecommerce.payload.CartDTO;
+import cz.ivosahlik.ecommerce.payload.OrderDTO;
+import cz.ivosahlik.ecommerce.payload.ProductDTO;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Generated mappers against the reflective ModelMapper path they replaced, on a product page,
+// a cart view and an order with its items. Run main() or the benchmark classes from the IDE.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int ITEMS = 10;
+
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final ProductMapper productMapper = new ProductMapperImpl();
+    private final CartMapper cartMapper = new CartMapperImpl(productMapper);
+    private final OrderMapper orderMapper = new OrderMapperImpl(productMapper);
+
+    private List<Product> products;
+    private Cart cart;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        Category category = new Category(1L, "Electronics", null);
+        products = new ArrayList<>();
+        for (long id = 1; id <= PAGE_SIZE; id++) {
+            Product product = new Product();
+            product.setProductId(id);
+            product.setProductName("Product " + id);
+            product.setDescription("Description of product " + id);
+            product.setImage("product-" + id + ".png");
+            product.setQuantity(100);
+            product.setPrice(10_000 + id * 100);
+            product.setDiscount(10.0);
+            product.setSpecialPrice(9_000 + id * 100);
+            product.setCategory(category);
+            products.add(product);
+        }
+
+        cart = new Cart();
+        cart.setCartId(1L);
+        order = new Order();
+        order.setOrderId(1L);
+        order.setEmail("user@example.com");
+        order.setOrderDate(LocalDate.now());
+        order.setOrderStatus("Accepted");
+        order.setPayment(new Payment("card", "pg-1", "succeeded", "ok", "Stripe"));
+        Address address = new Address("Main street", "Building", "Prague", "CZ", "Czechia", "11000");
+        address.setAddressId(1L);
+        order.setAddress(address);
+        long total = 0;
+        for (int i = 0; i < ITEMS; i++) {
+            Product product = products.get(i);
+            CartItem cartItem = new CartItem(null, cart, product, 2, product.getDiscount(), product.getSpecialPrice(), null);
+            cart.getCartItems().add(cartItem);
+            order.getOrderItems().add(new OrderItem((long) i, product, order, 2, product.getDiscount(), product.getSpecialPrice()));
+            total += 2 * product.getSpecialPrice();
+        }
+        cart.setTotalPrice(total);
+        order.setTotalAmount(total);
+    }
+
+    @Benchmark
+    public List<ProductDTO> productPageModelMapper() {
+        return products.stream()
+                .map(product -> modelMapper.map(product, ProductDTO.class))
+                .toList();
+    }
+
+    @Benchmark
+    public List<ProductDTO> productPageGenerated() {
+        return products.stream()
+                .map(productMapper::toDto)
+                .toList();
+    }
+
+    @Benchmark
+    public CartDTO cartModelMapper() {
+        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
+        cartDTO.setProducts(cart.getCartItems().stream().map(item -> {
+            ProductDTO productDTO = modelMapper.map(item.getProduct(), ProductDTO.class);
+            productDTO.setQuantity(item.getQuantity());
+            return productDTO;
+        }).toList());
+        return cartDTO;
+    }
+
+    @Benchmark
+    public CartDTO cartGenerated() {
+        return cartMapper.toDto(cart);
+    }
+
+    @Benchmark
+    public OrderDTO orderModelMapper() {
+        return modelMapper.map(order, OrderDTO.class);
+    }
+
+    @Benchmark
+    public OrderDTO orderGenerated() {
+        return orderMapper.toDto(order);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MapperBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
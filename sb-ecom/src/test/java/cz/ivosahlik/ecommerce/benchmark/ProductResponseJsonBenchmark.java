@@ -0,0 +1,69 @@
+package cz.ivosahlik.ecommerce.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.ivosahlik.ecommerce.payload.ProductDTO;
+import cz.ivosahlik.ecommerce.payload.ProductResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A public product listing page, serialized the way the message converter writes it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductResponseJsonBenchmark {
+
+    @Param({"10", "50"})
+    private int pageSize;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private ProductResponse productResponse;
+
+    @Setup
+    public void setUp() {
+        List<ProductDTO> content = new ArrayList<>(pageSize);
+        for (long id = 1; id <= pageSize; id++) {
+            content.add(new ProductDTO(id, "Product " + id, "http://localhost:8080/images/product-" + id + ".png",
+                    "Description of product " + id, 100, 10_000 + id * 100, 10.0, 9_000 + id * 100));
+        }
+        productResponse = new ProductResponse();
+        productResponse.setContent(content);
+        productResponse.setPageNumber(0);
+        productResponse.setPageSize(pageSize);
+        productResponse.setTotalElements(1000L);
+        productResponse.setTotalPages(1000 / pageSize);
+        productResponse.setLastPage(false);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productResponse);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductResponseJsonBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
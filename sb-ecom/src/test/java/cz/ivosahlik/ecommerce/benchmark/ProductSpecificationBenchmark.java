@@ -0,0 +1,57 @@
+package cz.ivosahlik.ecommerce.benchmark;
+
+import cz.ivosahlik.ecommerce.model.Product;
+import cz.ivosahlik.ecommerce.payload.ProductDTO;
+import cz.ivosahlik.ecommerce.repositories.ProductSpecifications;
+import cz.ivosahlik.ecommerce.util.ProductCursor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.concurrent.TimeUnit;
+
+// Building the Specification for ProductServiceImpl.getAllProducts, before any Criteria query exists
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSpecificationBenchmark {
+
+    private final String cursor = ProductCursor.after(
+            new ProductDTO(42L, "Gaming Laptop", null, null, 10, 120_000, 10.0, 108_000),
+            "price", true).encode();
+
+    @Benchmark
+    public Specification<Product> unfiltered() {
+        return ProductSpecifications.listing(null, null);
+    }
+
+    @Benchmark
+    public Specification<Product> keywordAndCategory() {
+        return ProductSpecifications.listing("Laptop", "Electronics");
+    }
+
+    @Benchmark
+    public Specification<Product> keywordAndCategoryAfterCursor() {
+        return ProductSpecifications.listing("Laptop", "Electronics")
+                .and(ProductSpecifications.seekAfter(ProductCursor.decode(cursor, "price", true)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductSpecificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}